@@ -0,0 +1,4 @@
+-- GET /user/{userId}: the detail row and its addresses
+\set id random(1, :rows)
+select id, first_name, last_name, email, version from tbl_user where id = :id;
+select id, city, address_type from tbl_address where user_id = :id;
@@ -0,0 +1,5 @@
+-- createdFrom / createdTo: one day of sign-ups, served by idx_user_created_at_id in every partition
+\set day random(0, 1800)
+select count(*) from tbl_user
+where created_at >= timestamp '2020-01-01' + :day * interval '1 day'
+  and created_at < timestamp '2020-01-01' + (:day + 1) * interval '1 day';
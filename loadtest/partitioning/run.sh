@@ -0,0 +1,70 @@
+#!/usr/bin/env bash
+# Compares tbl_user / tbl_address unpartitioned and hash-partitioned on a local Postgres with pgbench.
+# Needs psql and pgbench, with PGHOST, PGDATABASE, PGUSER, ... pointing at a scratch database (schemas plain and
+# hashed are dropped and recreated). ROWS users with two addresses each are seeded into both schemas; hashed is then
+# moved to PARTITIONS hash partitions by the db/tooling script, the way an operator would run it, and the move is timed.
+# Results: loadtest/results/partitioning.md
+set -euo pipefail
+
+ROWS=${ROWS:-10000000}
+PARTITIONS=${PARTITIONS:-16}
+CLIENTS=${CLIENTS:-32}
+THREADS=${THREADS:-8}
+DURATION=${DURATION:-60}
+DIR=loadtest/partitioning
+TOOLING=src/main/resources/db/tooling/user_partitioning.sql
+RESULTS=loadtest/results
+SUMMARY=$RESULTS/partitioning.md
+
+mkdir -p "$RESULTS"
+in_schema() {
+  local schema=$1
+  shift
+  PGOPTIONS="-c search_path=$schema,public" "$@"
+}
+seconds_since() {
+  echo $(( $(date +%s) - $1 ))
+}
+
+for schema in plain hashed; do
+  psql -X -q -v ON_ERROR_STOP=1 -v schema="$schema" -v rows="$ROWS" -f "$DIR/seed.sql"
+done
+
+in_schema hashed psql -X -q -v ON_ERROR_STOP=1 -f "$TOOLING"
+started=$(date +%s)
+in_schema hashed psql -X -q -v ON_ERROR_STOP=1 -c "call user_partitioning_prepare($PARTITIONS)" \
+  -c "call user_partitioning_backfill(50000)" > "$RESULTS/partitioning-backfill.log" 2>&1
+swap_started=$(date +%s)
+in_schema hashed psql -X -q -v ON_ERROR_STOP=1 -c "call user_partitioning_swap()"
+echo "Move of $ROWS users to $PARTITIONS partitions: prepare and backfill $(( swap_started - started ))s, swap $(seconds_since "$swap_started")s" > "$SUMMARY"
+echo >> "$SUMMARY"
+
+for schema in plain hashed; do
+  in_schema "$schema" psql -X -q -v ON_ERROR_STOP=1 -c "vacuum analyze tbl_user" -c "vacuum analyze tbl_address"
+done
+
+echo "| script | schema | tps | avg latency (ms) |" >> "$SUMMARY"
+echo "|---|---|---|---|" >> "$SUMMARY"
+for script in by-id update-status search created-range; do
+  for schema in plain hashed; do
+    out=$(in_schema "$schema" pgbench -n -M prepared -c "$CLIENTS" -j "$THREADS" -T "$DURATION" -D rows="$ROWS" -f "$DIR/$script.sql")
+    tps=$(echo "$out" | awk '/^tps/ {print int($3)}')
+    latency=$(echo "$out" | awk '/^latency average/ {print $4}')
+    echo "| $script | $schema | $tps | $latency |" >> "$SUMMARY"
+  done
+done
+
+# the update-status runs left dead tuples behind: one vacuum of the whole table against per-partition vacuums
+echo >> "$SUMMARY"
+for schema in plain hashed; do
+  started=$(date +%s)
+  in_schema "$schema" psql -X -q -v ON_ERROR_STOP=1 -c "vacuum tbl_user"
+  echo "vacuum tbl_user ($schema): $(seconds_since "$started")s" >> "$SUMMARY"
+done
+
+echo >> "$SUMMARY"
+echo '```' >> "$SUMMARY"
+in_schema hashed psql -X -q -c "explain (costs off) select * from tbl_user where id = 42" >> "$SUMMARY"
+in_schema hashed psql -X -q -c "explain (costs off) select * from tbl_address where user_id in (42, 43)" >> "$SUMMARY"
+echo '```' >> "$SUMMARY"
+cat "$SUMMARY"
@@ -0,0 +1,6 @@
+-- GET /user/list-with-sort-by-multiple-columns-search?search=...&city=...: trigram search with the city filter
+\set n random(1, 9999)
+select u.id, u.first_name, u.last_name from tbl_user u
+where lower(u.first_name) like '%first' || :n || '%'
+  and exists (select 1 from tbl_address a where a.user_id = u.id and lower(a.city) = 'hanoi')
+order by u.id limit 20;
@@ -0,0 +1,61 @@
+-- Stand-in for the application schema in the schema named by :schema (search_path), seeded with :rows users of two
+-- addresses each. Indexes mirror V2, V3 and the (created_at, id) one of V9; ids come from serial sequences with the
+-- default allocation size.
+create extension if not exists pg_trgm;
+drop schema if exists :schema cascade;
+create schema :schema;
+set search_path = :schema, public;
+
+create table tbl_user (
+    id bigserial primary key,
+    first_name varchar(255),
+    last_name varchar(255),
+    date_of_birth date,
+    gender varchar(16),
+    phone varchar(15),
+    email varchar(255),
+    username varchar(255),
+    password varchar(255),
+    type varchar(16),
+    status varchar(16),
+    created_at timestamp,
+    updated_at timestamp,
+    version bigint not null default 0
+);
+
+create table tbl_address (
+    id bigserial primary key,
+    apartment_number varchar(255),
+    floor varchar(255),
+    building varchar(255),
+    street_number varchar(255),
+    street varchar(255),
+    city varchar(255),
+    country varchar(255),
+    address_type integer,
+    user_id bigint references tbl_user (id),
+    created_at timestamp,
+    updated_at timestamp,
+    version bigint not null default 0
+);
+
+insert into tbl_user (first_name, last_name, date_of_birth, gender, email, username, password, type, status, created_at, updated_at)
+select 'First' || i, (array['Nguyen', 'Tran', 'Le', 'Pham', 'Hoang', 'Vo', 'Dang', 'Bui'])[1 + i % 8],
+       date '1960-01-01' + i % 20000, 'MALE', 'user' || i || '@example.com', 'user' || i, 'secret', 'USER', 'ACTIVE',
+       timestamp '2020-01-01' + (i * interval '1 second') * (157680000.0 / :rows), timestamp '2020-01-01'
+from generate_series(1, :rows) i;
+
+insert into tbl_address (street, city, country, address_type, user_id, created_at, updated_at)
+select 'Street ' || u.id, (array['Hanoi', 'Saigon', 'Hue', 'Danang', 'Haiphong'])[1 + (u.id + t) % 5], 'Vietnam', t, u.id,
+       u.created_at, u.created_at
+from tbl_user u cross join generate_series(1, 2) t;
+
+alter sequence tbl_user_id_seq increment by 50;
+alter sequence tbl_address_id_seq increment by 50;
+
+create index idx_user_first_name_trgm on tbl_user using gin (lower(first_name) gin_trgm_ops);
+create index idx_user_last_name_trgm on tbl_user using gin (lower(last_name) gin_trgm_ops);
+create index idx_user_email_trgm on tbl_user using gin (lower(email) gin_trgm_ops);
+create index idx_address_city_user on tbl_address (lower(city), user_id);
+create index idx_address_user on tbl_address (user_id);
+create index idx_user_created_at_id on tbl_user (created_at, id);
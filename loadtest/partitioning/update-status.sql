@@ -0,0 +1,3 @@
+-- PATCH /user/{userId}/status: versioned update of one row
+\set id random(1, :rows)
+update tbl_user set status = 'INACTIVE', updated_at = now(), version = version + 1 where id = :id;
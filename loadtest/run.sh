@@ -0,0 +1,40 @@
+#!/usr/bin/env bash
+# Compares platform threads and virtual threads at 1k and 5k concurrent connections against a local Postgres.
+# Needs a JDK 21 on JAVA, k6 and jq; the jar is taken from target/ (mvn clean package -P dev).
+# Results: loadtest/results/<mode>-<vus>.json (k6 summaries) and loadtest/results/summary.md
+set -euo pipefail
+
+JAVA=${JAVA:-java}
+JAR=${JAR:-$(ls target/*.jar | head -n 1)}
+DURATION=${DURATION:-60s}
+PORT=${PORT:-8080}
+RESULTS=loadtest/results
+
+mkdir -p "$RESULTS"
+echo "| threads | connections | req/s | p99 (ms) | errors |" > "$RESULTS/summary.md"
+echo "|---|---|---|---|---|" >> "$RESULTS/summary.md"
+
+for mode in platform virtual; do
+  virtual=false
+  [ "$mode" = virtual ] && virtual=true
+
+  SPRING_THREADS_VIRTUAL_ENABLED=$virtual "$JAVA" -Djdk.tracePinnedThreads=short -jar "$JAR" --server.port="$PORT" \
+    > "$RESULTS/$mode-app.log" 2>&1 &
+  app=$!
+  trap 'kill $app 2>/dev/null || true' EXIT
+  until curl -sf "http://localhost:$PORT/actuator/health" > /dev/null; do sleep 1; done
+
+  for vus in 1000 5000; do
+    k6 run -q -e BASE_URL="http://localhost:$PORT" -e VUS="$vus" -e DURATION="$DURATION" \
+      --summary-export "$RESULTS/$mode-$vus.json" loadtest/user-list.js
+    jq -r --arg mode "$mode" --arg vus "$vus" \
+      '"| \($mode) | \($vus) | \(.metrics.http_reqs.rate | floor) | \(.metrics.http_req_duration["p(99)"] | floor) | \(.metrics.http_req_failed.value * 100 | floor)% |"' \
+      "$RESULTS/$mode-$vus.json" >> "$RESULTS/summary.md"
+  done
+
+  kill "$app"
+  wait "$app" 2>/dev/null || true
+done
+
+grep -c "onPinned\|<== monitors" "$RESULTS/virtual-app.log" | xargs echo "pinned thread stack traces:" >> "$RESULTS/summary.md" || true
+cat "$RESULTS/summary.md"
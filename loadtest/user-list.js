@@ -0,0 +1,24 @@
+// k6 load test of the user list endpoint, which always reaches Postgres (the detail endpoint is cached).
+// k6 run -e BASE_URL=http://localhost:8080 -e VUS=1000 -e DURATION=60s loadtest/user-list.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+
+export const options = {
+    discardResponseBodies: true,
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+    scenarios: {
+        list: {
+            executor: 'constant-vus',
+            vus: Number(__ENV.VUS || 1000),
+            duration: __ENV.DURATION || '60s',
+        },
+    },
+};
+
+export default function () {
+    const pageNo = 1 + Math.floor(Math.random() * 50);
+    const res = http.get(`${BASE_URL}/user/list?pageNo=${pageNo}&pageSize=20&count=NONE`, { timeout: '60s' });
+    check(res, { 'status is 200': (r) => r.status === 200 });
+}
@@ -0,0 +1,105 @@
+package com.khoinguyen.core.dto.serializer;
+
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.khoinguyen.core.dto.response.AddressResponse;
+import com.khoinguyen.core.dto.response.PageResponse;
+import com.khoinguyen.core.dto.response.ResponseData;
+import com.khoinguyen.core.dto.response.UserDetailResponse;
+import com.khoinguyen.core.util.Gender;
+import com.khoinguyen.core.util.UserStatus;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding of a 1000-row list response ({@code ResponseData<PageResponse<UserDetailResponse>>}): the reflective
+ * bean serializer JSON was written with before, the hand-written serializers as JSON and as CBOR, each plain and
+ * gzipped as server.compression would send it. Bytes on the wire are printed per encoding at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageEncodingBenchmark {
+
+    @JsonSerialize(using = JsonSerializer.None.class)
+    interface BeanSerialized {
+    }
+
+    @Param({"json-reflective", "json", "cbor"})
+    private String encoding;
+
+    @Param({"false", "true"})
+    private boolean includeAddresses;
+
+    private ObjectMapper mapper;
+
+    private ResponseData<PageResponse<List<UserDetailResponse>>> page;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = switch (encoding) {
+            case "json-reflective" -> Jackson2ObjectMapperBuilder.json()
+                    .mixIn(UserDetailResponse.class, BeanSerialized.class)
+                    .mixIn(AddressResponse.class, BeanSerialized.class)
+                    .build();
+            case "json" -> Jackson2ObjectMapperBuilder.json().build();
+            default -> Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+        };
+
+        List<UserDetailResponse> users = new ArrayList<>();
+        for (long i = 0; i < 1000; i++) {
+            UserDetailResponse user = UserDetailResponse.builder()
+                    .id(i)
+                    .firstName("First" + i)
+                    .lastName("Last" + i)
+                    .email("user" + i + "@example.com")
+                    .phone("0902" + (100000 + i))
+                    .dateOfBirth(new Date(631152000000L + i * 86400000L))
+                    .gender(i % 2 == 0 ? Gender.MALE : Gender.FEMALE)
+                    .username("user" + i)
+                    .type("USER")
+                    .status(UserStatus.ACTIVE)
+                    .build();
+            if (includeAddresses) {
+                user.setAddresses(List.of(
+                        AddressResponse.builder().id(2 * i).street("Le Loi").city("Hanoi").country("Vietnam").addressType(1).build(),
+                        AddressResponse.builder().id(2 * i + 1).street("Tran Phu").city("Hue").country("Vietnam").addressType(2).build()));
+            }
+            users.add(user);
+        }
+        page = ResponseData.<PageResponse<List<UserDetailResponse>>>builder()
+                .status(200)
+                .message("users")
+                .data(PageResponse.<List<UserDetailResponse>>builder().pageNo(0).pageSize(1000).totalPage(100).items(users).build())
+                .build();
+
+        System.out.printf("%n%s, includeAddresses=%s: %d bytes, %d gzipped%n", encoding, includeAddresses, encode().length, encodeGzipped().length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] encodeGzipped() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            mapper.writeValue(gzip, page);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,131 @@
+package com.khoinguyen.core.repository;
+
+import com.khoinguyen.core.dto.request.UserFilter;
+import com.khoinguyen.core.dto.response.PageResponse;
+import com.khoinguyen.core.model.User;
+import com.khoinguyen.core.util.CountMode;
+import com.khoinguyen.core.util.SearchEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link SearchRepository} search through JPA and JDBC.
+ * <p>
+ * By default it runs against an in-memory H2 database in PostgreSQL mode, seeded with {@code rows} users
+ * from the test schema. Pass {@code -Dbenchmark.datasource.url=jdbc:postgresql://...} (plus username and
+ * password) to run against an existing local Postgres instead; that database is used as is, and only there
+ * does the TRIGRAM engine work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchRepositoryBenchmark {
+
+    @Param({"LIKE", "MEMORY"})
+    private SearchEngine engine;
+
+    @Param({"10000"})
+    private int rows;
+
+    @Param({"ngu"})
+    private String search;
+
+    @Param({"EXACT", "NONE"})
+    private CountMode count;
+
+    private ConfigurableApplicationContext context;
+
+    private SearchRepository searchRepository;
+
+    private UserFilter filter;
+
+    @Configuration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, JdbcTemplateAutoConfiguration.class,
+            SqlInitializationAutoConfiguration.class, HibernateJpaAutoConfiguration.class, TransactionAutoConfiguration.class})
+    @EntityScan(basePackageClasses = User.class)
+    @EnableJpaRepositories(basePackageClasses = UserRepository.class)
+    @Import({SearchRepository.class, UserChangeRepository.class, UserCountEstimator.class, UserSearchIndex.class})
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        String url = System.getProperty("benchmark.datasource.url");
+        List<String> properties = new ArrayList<>(List.of(
+                "spring.config.location=optional:classpath:/jpa-test/",
+                "spring.jpa.hibernate.ddl-auto=none",
+                "spring.jpa.open-in-view=false",
+                "app.search.engine=" + engine.name().toLowerCase()));
+        if (url == null) {
+            properties.add("spring.datasource.url=jdbc:h2:mem:benchmark;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+            properties.add("spring.jpa.database-platform=" + H2NamedEnumDialect.class.getName());
+            properties.add("spring.sql.init.mode=always");
+            properties.add("spring.sql.init.schema-locations=classpath:jpa-test/schema.sql");
+        } else {
+            properties.add("spring.datasource.url=" + url);
+            properties.add("spring.datasource.username=" + System.getProperty("benchmark.datasource.username", "postgres"));
+            properties.add("spring.datasource.password=" + System.getProperty("benchmark.datasource.password", "postgres"));
+            properties.add("spring.sql.init.mode=never");
+        }
+
+        context = new SpringApplicationBuilder(Config.class)
+                .web(WebApplicationType.NONE)
+                .properties(properties.toArray(String[]::new))
+                .run();
+        searchRepository = context.getBean(SearchRepository.class);
+        filter = UserFilter.builder().search(search).build();
+
+        if (url == null) {
+            seed(context.getBean(JdbcTemplate.class));
+        }
+        context.getBean(UserSearchIndex.class).rebuild();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PageResponse<?> search() {
+        return searchRepository.getAllUsersWithSortByMultipleColumnAndSearch(0, 20, filter, "lastName:asc", count);
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        String[] lastNames = {"Nguyen", "Tran", "Le", "Pham", "Hoang", "Vo", "Dang", "Bui"};
+        List<Object[]> batch = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            String lastName = lastNames[i % lastNames.length];
+            batch.add(new Object[]{"First" + i, lastName, "user" + i + "@example.com", "user" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into tbl_user (first_name, last_name, email, username, gender, type, status, created_at, updated_at)" +
+                " values (?, ?, ?, ?, 'MALE', 'USER', 'ACTIVE', now(), now())", batch);
+    }
+}
@@ -0,0 +1,160 @@
+package com.khoinguyen.core.service.impl;
+
+import com.khoinguyen.core.dto.request.AddressDTO;
+import com.khoinguyen.core.dto.request.UserRequestDTO;
+import com.khoinguyen.core.model.PooledSequenceGenerator;
+import com.khoinguyen.core.model.User;
+import com.khoinguyen.core.repository.H2NamedEnumDialect;
+import com.khoinguyen.core.repository.SearchRepository;
+import com.khoinguyen.core.repository.UserChangeRepository;
+import com.khoinguyen.core.repository.UserCountEstimator;
+import com.khoinguyen.core.repository.UserRepository;
+import com.khoinguyen.core.repository.UserSearchIndex;
+import com.khoinguyen.core.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Users per second through {@link UserService#saveUser}, each with five addresses, one transaction per user.
+ * <p>
+ * allocationSize=1 with batchSize=1 is the old write path in round trips: one statement per row plus, instead
+ * of the identity value coming back with the insert, a nextval per row (so it slightly understates the old
+ * throughput). allocationSize=50 with batchSize=50 is the default configuration.
+ * <p>
+ * By default it runs against a fresh in-memory H2 database per trial, where a round trip costs no network time
+ * and batching gains the least. Pass {@code -Dbenchmark.datasource.url=jdbc:postgresql://...} (plus username and
+ * password) to run against a migrated local Postgres instead; allocationSize must then match the INCREMENT BY of
+ * its sequences, and the saved users are left in the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveUserBenchmark {
+
+    @Param({"1", "50"})
+    private int allocationSize;
+
+    @Param({"1", "50"})
+    private int batchSize;
+
+    private ConfigurableApplicationContext context;
+
+    private UserService userService;
+
+    private UserRequestDTO request;
+
+    @Configuration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, JdbcTemplateAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class, TransactionAutoConfiguration.class, JacksonAutoConfiguration.class,
+            ValidationAutoConfiguration.class})
+    @EntityScan(basePackageClasses = User.class)
+    @EnableJpaRepositories(basePackageClasses = UserRepository.class)
+    @Import({UserServiceImpl.class, SearchRepository.class, UserChangeRepository.class, UserCountEstimator.class, UserSearchIndex.class})
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Setup
+    public void setUp() throws SQLException {
+        String url = System.getProperty("benchmark.datasource.url");
+        List<String> properties = new ArrayList<>(List.of(
+                "spring.config.location=optional:classpath:/jpa-test/",
+                "spring.jpa.hibernate.ddl-auto=none",
+                "spring.jpa.open-in-view=false",
+                "spring.sql.init.mode=never",
+                "logging.level.com.khoinguyen.core=warn",
+                "spring.jpa.properties." + PooledSequenceGenerator.ALLOCATION_SIZE + "=" + allocationSize,
+                "spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                "spring.jpa.properties.hibernate.order_inserts=true"));
+        if (url == null) {
+            url = "jdbc:h2:mem:save-user-" + allocationSize + "-" + batchSize + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+            createH2Schema(url);
+            properties.add("spring.jpa.database-platform=" + H2NamedEnumDialect.class.getName());
+        } else {
+            properties.add("spring.datasource.username=" + System.getProperty("benchmark.datasource.username", "postgres"));
+            properties.add("spring.datasource.password=" + System.getProperty("benchmark.datasource.password", "postgres"));
+            properties.add("spring.datasource.hikari.data-source-properties.reWriteBatchedInserts=true");
+        }
+        properties.add("spring.datasource.url=" + url);
+
+        context = new SpringApplicationBuilder(Config.class)
+                .web(WebApplicationType.NONE)
+                .properties(properties.toArray(String[]::new))
+                .run();
+        userService = context.getBean(UserService.class);
+
+        Set<AddressDTO> addresses = Set.of(
+                AddressDTO.builder().street("Le Loi").city("Hanoi").country("Vietnam").addressType(1).build(),
+                AddressDTO.builder().street("Tran Phu").city("Hanoi").country("Vietnam").addressType(2).build(),
+                AddressDTO.builder().street("Nguyen Hue").city("Saigon").country("Vietnam").addressType(3).build(),
+                AddressDTO.builder().street("Hung Vuong").city("Hue").country("Vietnam").addressType(4).build(),
+                AddressDTO.builder().street("Bach Dang").city("Danang").country("Vietnam").addressType(5).build());
+        request = UserRequestDTO.builder()
+                .firstName("Khoi")
+                .lastName("Nguyen")
+                .email("khoi@example.com")
+                .phone("0902345345")
+                .dateOfBirth(new Date())
+                .username("khoi")
+                .password("secret")
+                .type("user")
+                .addresses(addresses)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long saveUser() {
+        return userService.saveUser(request);
+    }
+
+    // the test schema, with the sequences' INCREMENT BY set to this trial's allocation size
+    private void createH2Schema(String url) throws SQLException {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(url, "sa", "", true);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("jpa-test/schema.sql"));
+            statement.execute("alter sequence tbl_user_id_seq increment by " + allocationSize);
+            statement.execute("alter sequence tbl_address_id_seq increment by " + allocationSize);
+        } finally {
+            dataSource.destroy();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.khoinguyen.core.service.impl;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the sortBy request parameters into {@link Sort.Order}s, as done on every list request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortOrderBenchmark {
+
+    private final String single = "firstName:asc";
+
+    private final String[] multiple = {"lastName:desc", "firstName:asc", "createdAt:desc"};
+
+    @Benchmark
+    public List<Sort.Order> singleColumn() {
+        return UserServiceImpl.toSortOrders(single);
+    }
+
+    @Benchmark
+    public List<Sort.Order> multipleColumns() {
+        return UserServiceImpl.toSortOrders(multiple);
+    }
+
+    @Benchmark
+    public Sort pageSort() {
+        return Sort.by(UserServiceImpl.toSortOrders(multiple));
+    }
+}
@@ -0,0 +1,72 @@
+package com.khoinguyen.core.service.impl;
+
+import com.khoinguyen.core.dto.response.UserDetailResponse;
+import com.khoinguyen.core.model.User;
+import com.khoinguyen.core.repository.UserDetailProjection;
+import com.khoinguyen.core.util.Gender;
+import com.khoinguyen.core.util.UserStatus;
+import com.khoinguyen.core.util.UserType;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of a loaded row to {@link UserDetailResponse}, from the entity (cursor pages) and from the
+ * map-backed projection proxy Spring Data returns for list and detail queries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserDetailMappingBenchmark {
+
+    private User user;
+
+    private UserDetailProjection projection;
+
+    @Setup
+    public void setUp() {
+        user = User.builder()
+                .firstName("Khoi")
+                .lastName("Nguyen")
+                .email("khoi@example.com")
+                .phone("0902345345")
+                .dateOfBirth(new Date())
+                .gender(Gender.MALE)
+                .username("khoi")
+                .password("secret")
+                .type(UserType.USER)
+                .status(UserStatus.ACTIVE)
+                .build();
+        user.setId(1L);
+
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", user.getId());
+        row.put("firstName", user.getFirstName());
+        row.put("lastName", user.getLastName());
+        row.put("email", user.getEmail());
+        row.put("phone", user.getPhone());
+        row.put("dateOfBirth", user.getDateOfBirth());
+        row.put("gender", user.getGender());
+        row.put("username", user.getUsername());
+        row.put("type", user.getType());
+        row.put("status", user.getStatus());
+        projection = new SpelAwareProxyProjectionFactory().createProjection(UserDetailProjection.class, row);
+    }
+
+    @Benchmark
+    public UserDetailResponse fromEntity() {
+        return UserServiceImpl.toUserDetailResponse(user);
+    }
+
+    @Benchmark
+    public UserDetailResponse fromProjection() {
+        return UserServiceImpl.toUserDetailResponse(projection);
+    }
+}
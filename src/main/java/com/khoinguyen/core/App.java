@@ -2,8 +2,10 @@ package com.khoinguyen.core;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 
-@SpringBootApplication
+// R2DBC is wired by R2dbcConfig only when the reactive API is enabled; its auto-configured pool would replace the DataSource
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class App {
 
     public static void main(String[] args) {
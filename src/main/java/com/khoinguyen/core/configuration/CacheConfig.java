@@ -0,0 +1,37 @@
+package com.khoinguyen.core.configuration;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+
+/**
+ * Caches are configured through {@code spring.cache.*}, with one provider at a time: caffeine (the default) keeps
+ * a cache per instance, so an eviction only reaches the instance that wrote and the others serve their entry until
+ * it expires; redis replaces it with one cache shared by all instances, at a network round trip per lookup.
+ * Hit/miss statistics are published under the {@code cache.*} metrics.
+ * <p>
+ * Either way the cache manager is made transaction-aware: an eviction (or put) made inside a transaction is applied
+ * after it commits, so a read between the eviction and the commit cannot cache the row as it was before the write.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String USERS = "users";
+
+    @Bean
+    public static BeanPostProcessor transactionAwareCacheManagerPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+                if (bean instanceof CacheManager cacheManager && !(bean instanceof TransactionAwareCacheManagerProxy)) {
+                    return new TransactionAwareCacheManagerProxy(cacheManager);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package com.khoinguyen.core.configuration;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Responses are negotiated between JSON and CBOR (Accept: application/cbor). CBOR is written by the same
+ * ObjectMapper configuration and hand-written serializers as JSON, so both carry the same document; it is smaller
+ * and cheaper to encode since field names and numbers are not rendered as text. Compression of either is set up
+ * with {@code server.compression.*}.
+ */
+@Configuration
+public class HttpEncodingConfig {
+
+    // replaces the converter Spring MVC registers by default, which ignores the spring.jackson.* settings
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
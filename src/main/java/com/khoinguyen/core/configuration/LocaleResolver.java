@@ -1,7 +1,10 @@
 package com.khoinguyen.core.configuration;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.ResourceBundleMessageSource;
@@ -12,12 +15,17 @@ import org.springframework.web.servlet.i18n.AcceptHeaderLocaleResolver;
 
 import java.util.List;
 import java.util.Locale;
+import java.util.Optional;
 
 @Slf4j
 @Configuration
 public class LocaleResolver extends AcceptHeaderLocaleResolver implements WebMvcConfigurer {
 
-    List<Locale> LOCALES = List.of(new Locale("en"), new Locale("fr"));
+    static final List<Locale> LOCALES = List.of(new Locale("en"), new Locale("fr"));
+
+    // raw Accept-Language -> supported locale (empty when none matches). Clients send a handful of distinct
+    // headers, so parsing and matching run once per header; the bound keeps arbitrary headers from growing it
+    private final Cache<String, Optional<Locale>> resolved = Caffeine.newBuilder().maximumSize(1024).build();
 
     @Override
     @NonNull
@@ -25,16 +33,20 @@ public class LocaleResolver extends AcceptHeaderLocaleResolver implements WebMvc
         String languageHeader = request.getHeader("Accept-Language");
         return !StringUtils.hasLength(languageHeader)
                 ? Locale.US
-                : Locale.lookup(Locale.LanguageRange.parse(languageHeader), LOCALES);
+                : resolved.get(languageHeader, header -> Optional.ofNullable(Locale.lookup(Locale.LanguageRange.parse(header), LOCALES)))
+                        .orElse(null);
     }
 
     @Bean
-    public ResourceBundleMessageSource messageSource() {
+    public ResourceBundleMessageSource messageSource(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
         ResourceBundleMessageSource rs = new ResourceBundleMessageSource();
         rs.setBasename("messages");
         rs.setDefaultEncoding("UTF-8");
         rs.setUseCodeAsDefaultMessage(true);
-        rs.setCacheSeconds(3600);
+        // Translator answers from its own table and only falls back here. ResourceBundle checks an expired bundle for
+        // changes on disk while holding the bundle's monitor, which pins the carrier of every virtual thread calling
+        // it meanwhile; keep bundles for good in that mode
+        rs.setCacheSeconds(virtualThreads ? -1 : 3600);
         return rs;
     }
 }
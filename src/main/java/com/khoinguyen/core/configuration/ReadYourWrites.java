@@ -0,0 +1,44 @@
+package com.khoinguyen.core.configuration;
+
+import java.util.function.Supplier;
+
+/**
+ * Pins the reads of the current request to the primary, so a client reads its own writes while the replicas
+ * catch up. Set per request by {@link ReplicaRoutingConfig} on writes and for the read-your-writes window after
+ * them; work on other threads is not pinned.
+ */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    public static void pin() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    public static boolean isPinned() {
+        return PINNED.get() != null;
+    }
+
+    public static void clear() {
+        PINNED.remove();
+    }
+
+    /**
+     * Runs {@code work} with its reads pinned to the primary, for results that outlive the request (cache fills)
+     * and so must not be read from a replica that is behind. The work has to open its connection inside.
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        if (isPinned()) {
+            return work.get();
+        }
+        pin();
+        try {
+            return work.get();
+        } finally {
+            clear();
+        }
+    }
+}
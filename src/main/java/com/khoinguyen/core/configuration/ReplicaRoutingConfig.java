@@ -0,0 +1,166 @@
+package com.khoinguyen.core.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.lang.NonNull;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read replicas (app.datasource.replicas.enabled): {@code @Transactional(readOnly = true)} work (user detail, lists,
+ * search, export) runs on the replicas in app.datasource.replicas.urls, everything else on spring.datasource.
+ * <p>
+ * The DataSource is a {@link LazyConnectionDataSourceProxy}: it fetches the connection at the first statement,
+ * after the transaction has marked it read-only, and takes read-only connections from
+ * {@link ReplicaRoutingDataSource}. Every pool is built here rather than exposed as a bean, so the DataSource
+ * post-processors (SQL tracing) see one DataSource and trace each statement once.
+ * <p>
+ * Read-your-writes: a write request pins its own reads to the primary and sets the {@value #PRIMARY_UNTIL_COOKIE}
+ * cookie, which pins the client's requests to the primary for app.datasource.replicas.read-your-writes-window.
+ * Other clients may read data up to max-lag old. The cached user detail is the exception: it is filled from the
+ * primary (see {@link ReadYourWrites#onPrimary}), so the cache never keeps a replica's old version.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replicas.enabled", havingValue = "true")
+public class ReplicaRoutingConfig implements WebMvcConfigurer, DisposableBean {
+
+    static final String PRIMARY_UNTIL_COOKIE = "primary-until";
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+    private final ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-health-check");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Duration readYourWritesWindow;
+
+    public ReplicaRoutingConfig(@Value("${app.datasource.replicas.read-your-writes-window:5s}") Duration readYourWritesWindow) {
+        this.readYourWritesWindow = readYourWritesWindow;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties,
+                                 Environment environment,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.datasource.replicas.urls}") List<String> urls,
+                                 @Value("${app.datasource.replicas.max-pool-size:20}") int replicaPoolSize,
+                                 @Value("${app.datasource.replicas.max-lag:1s}") Duration maxLag,
+                                 @Value("${app.datasource.replicas.check-interval:2s}") Duration checkInterval) {
+        HikariDataSource primary = pool(properties, environment, meterRegistry);
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource replica = pool(properties, environment, meterRegistry);
+            replica.setJdbcUrl(urls.get(i).trim());
+            replica.setPoolName(primary.getPoolName() + "-replica-" + i);
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            // a replica that is down must not keep the application from starting
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+
+        ReplicaRoutingDataSource router = new ReplicaRoutingDataSource(primary, replicas, maxLag, checkInterval, meterRegistry);
+        // until its first check a replica is unavailable and reads go to the primary
+        checker.scheduleWithFixedDelay(router::check, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Routing read-only transactions over {} replicas, max lag {}", replicas.size(), maxLag);
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(router);
+        return dataSource;
+    }
+
+    // spring.datasource and spring.datasource.hikari, as DataSourceAutoConfiguration would build the pool
+    private HikariDataSource pool(DataSourceProperties properties, Environment environment, MeterRegistry meterRegistry) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setMetricRegistry(meterRegistry);
+        pools.add(pool);
+        return pool;
+    }
+
+    @Override
+    public void addInterceptors(@NonNull InterceptorRegistry registry) {
+        registry.addInterceptor(new AsyncHandlerInterceptor() {
+            @Override
+            public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) {
+                long now = System.currentTimeMillis();
+                if (isWrite(request)) {
+                    ReadYourWrites.pin();
+                    Cookie cookie = new Cookie(PRIMARY_UNTIL_COOKIE, Long.toString(now + readYourWritesWindow.toMillis()));
+                    cookie.setMaxAge((int) Math.max(1, readYourWritesWindow.toSeconds()));
+                    cookie.setPath("/");
+                    cookie.setHttpOnly(true);
+                    response.addCookie(cookie);
+                } else if (primaryUntil(request) > now) {
+                    ReadYourWrites.pin();
+                }
+                return true;
+            }
+
+            @Override
+            public void afterConcurrentHandlingStarted(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) {
+                ReadYourWrites.clear();
+            }
+
+            @Override
+            public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler, Exception ex) {
+                ReadYourWrites.clear();
+            }
+        });
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method) && !HttpMethod.OPTIONS.matches(method);
+    }
+
+    private static long primaryUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (PRIMARY_UNTIL_COOKIE.equals(cookie.getName())) {
+                    try {
+                        return Long.parseLong(cookie.getValue());
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void destroy() {
+        checker.shutdownNow();
+        pools.forEach(HikariDataSource::close);
+    }
+}
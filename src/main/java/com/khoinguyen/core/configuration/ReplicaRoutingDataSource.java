@@ -0,0 +1,165 @@
+package com.khoinguyen.core.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.lang.NonNull;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connections for read-only transactions (see {@link ReplicaRoutingConfig}): round robin over the replicas that
+ * passed their last {@link #check()}, the primary when none did or while the request is pinned by
+ * {@link ReadYourWrites}.
+ * <p>
+ * A replica is available while it answers, streams from the primary and replays within max-lag of it. Each check
+ * reads the primary's current WAL position first: a replica that has replayed up to it has zero lag, so an idle
+ * primary does not make its replicas look behind; one that has not is as far behind as the age of its last
+ * replayed transaction. A replica whose WAL receiver is not streaming, or that is no longer in recovery, is out of
+ * rotation whatever it has replayed. Errors lean towards the primary: WAL written between the two reads can make
+ * a replica look behind for one check.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    static final String PRIMARY_LSN_QUERY = "select cast(pg_current_wal_lsn() as text)";
+
+    // seconds behind the primary's WAL position (the parameter), null when the replica cannot catch up with it; the
+    // receiver's status is null for users without pg_read_all_stats, and then a running receiver has to do
+    static final String LAG_QUERY = "select case when not pg_is_in_recovery() then null " +
+            "when not exists (select 1 from pg_stat_wal_receiver where coalesce(status, 'streaming') = 'streaming') then null " +
+            "when pg_last_wal_replay_lsn() >= cast(? as pg_lsn) then 0 " +
+            "else extract(epoch from now() - pg_last_xact_replay_timestamp()) end";
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final int checkTimeoutSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter primaryReads;
+    private final Counter replicaReads;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration maxLag, Duration checkTimeout,
+                                    MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.maxLagMillis = maxLag.toMillis();
+        this.checkTimeoutSeconds = (int) Math.max(1, checkTimeout.toSeconds());
+        this.primaryReads = routed(meterRegistry, "primary");
+        this.replicaReads = routed(meterRegistry, "replica");
+        for (int i = 0; i < this.replicas.size(); i++) {
+            Replica replica = this.replicas.get(i);
+            Gauge.builder("datasource.replica.lag", replica, r -> r.lagMillis < 0 ? -1 : r.lagMillis / 1000.0)
+                    .description("Replay lag of the replica at its last check, -1 when it did not answer or was not streaming")
+                    .baseUnit("seconds")
+                    .tag("replica", Integer.toString(i))
+                    .register(meterRegistry);
+        }
+    }
+
+    private static Counter routed(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("datasource.read.routing")
+                .description("Read-only connections handed out, by the pool they came from")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+
+    @Override
+    @NonNull
+    public Connection getConnection() throws SQLException {
+        return select().getConnection();
+    }
+
+    @Override
+    @NonNull
+    public Connection getConnection(@NonNull String username, @NonNull String password) throws SQLException {
+        return select().getConnection(username, password);
+    }
+
+    DataSource select() {
+        if (!ReadYourWrites.isPinned() && !replicas.isEmpty()) {
+            int size = replicas.size();
+            int start = Math.floorMod(next.getAndIncrement(), size);
+            for (int i = 0; i < size; i++) {
+                Replica replica = replicas.get((start + i) % size);
+                if (replica.available) {
+                    replicaReads.increment();
+                    return replica.dataSource;
+                }
+            }
+        }
+        primaryReads.increment();
+        return primary;
+    }
+
+    /**
+     * Measures the lag of every replica; run every app.datasource.replicas.check-interval.
+     */
+    void check() {
+        String primaryLsn;
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(checkTimeoutSeconds);
+            try (ResultSet rs = statement.executeQuery(PRIMARY_LSN_QUERY)) {
+                rs.next();
+                primaryLsn = rs.getString(1);
+            }
+        } catch (SQLException | RuntimeException e) {
+            // nothing to measure the replicas against: keep their state until the primary answers again
+            log.warn("Could not read the primary's WAL position, replica lag not checked", e);
+            return;
+        }
+
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(i);
+            boolean wasAvailable = replica.available;
+            try (Connection connection = replica.dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(LAG_QUERY)) {
+                statement.setQueryTimeout(checkTimeoutSeconds);
+                statement.setString(1, primaryLsn);
+                try (ResultSet rs = statement.executeQuery()) {
+                    rs.next();
+                    double lag = rs.getDouble(1);
+                    replica.lagMillis = rs.wasNull() ? -1 : Math.round(lag * 1000);
+                }
+                replica.available = replica.lagMillis >= 0 && replica.lagMillis <= maxLagMillis;
+                if (replica.available && !wasAvailable) {
+                    log.info("Replica {} is available, {} ms behind the primary", i, replica.lagMillis);
+                } else if (!replica.available && wasAvailable) {
+                    if (replica.lagMillis < 0) {
+                        log.warn("Replica {} is not streaming from the primary, reading from the others or the primary", i);
+                    } else {
+                        log.warn("Replica {} is {} ms behind the primary, reading from the others or the primary", i, replica.lagMillis);
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                replica.lagMillis = -1;
+                replica.available = false;
+                if (wasAvailable) {
+                    log.warn("Replica {} failed its health check, reading from the others or the primary", i, e);
+                }
+            }
+        }
+    }
+
+    private static class Replica {
+        private final DataSource dataSource;
+        // unavailable until the first check has measured it
+        private volatile boolean available;
+        private volatile long lagMillis = -1;
+
+        Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
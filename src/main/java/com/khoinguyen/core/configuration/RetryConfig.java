@@ -0,0 +1,13 @@
+package com.khoinguyen.core.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.retry.annotation.EnableRetry;
+
+/**
+ * Enables {@code @Retryable}. Its advice is ordered before the transaction advice, so every attempt runs in a new
+ * transaction on freshly loaded state.
+ */
+@Configuration
+@EnableRetry
+public class RetryConfig {
+}
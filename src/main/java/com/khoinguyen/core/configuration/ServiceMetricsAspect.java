@@ -0,0 +1,83 @@
+package com.khoinguyen.core.configuration;
+
+import com.khoinguyen.core.exception.InvalidRequestException;
+import com.khoinguyen.core.exception.PreconditionFailedException;
+import com.khoinguyen.core.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.ConstraintViolationException;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times every call of the blocking user services, tagged with the method and its outcome (success, not_found,
+ * invalid, conflict or error). Runs outside the cache and retry advice, so cache hits are timed too and retried
+ * calls are timed once.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class ServiceMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    // one entry per service method and outcome, so a call only looks its meters up
+    private final Map<Key, Meters> meters = new ConcurrentHashMap<>();
+
+    private record Key(Class<?> service, String method, String outcome) {
+    }
+
+    private record Meters(Timer timer, Counter outcomes) {
+    }
+
+    @Around("execution(* com.khoinguyen.core.service.UserService.*(..))" +
+            " || execution(* com.khoinguyen.core.service.UserImportService.*(..))" +
+            " || execution(* com.khoinguyen.core.service.UserExportService.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            return joinPoint.proceed();
+        } catch (ResourceNotFoundException e) {
+            outcome = "not_found";
+            throw e;
+        } catch (ConstraintViolationException | InvalidRequestException e) {
+            outcome = "invalid";
+            throw e;
+        } catch (PreconditionFailedException | OptimisticLockingFailureException e) {
+            outcome = "conflict";
+            throw e;
+        } catch (Throwable e) {
+            outcome = "error";
+            throw e;
+        } finally {
+            Meters meters = this.meters.computeIfAbsent(
+                    new Key(joinPoint.getTarget().getClass(), joinPoint.getSignature().getName(), outcome), this::register);
+            sample.stop(meters.timer());
+            meters.outcomes().increment();
+        }
+    }
+
+    private Meters register(Key key) {
+        String service = key.service().getSimpleName();
+        return new Meters(Timer.builder("user.service")
+                .description("User service method execution")
+                .tag("service", service)
+                .tag("method", key.method())
+                .tag("outcome", key.outcome())
+                .publishPercentileHistogram()
+                .register(meterRegistry),
+                meterRegistry.counter("user.service.outcomes", "service", service, "method", key.method(), "outcome", key.outcome()));
+    }
+}
@@ -0,0 +1,106 @@
+package com.khoinguyen.core.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs EXPLAIN (ANALYZE, BUFFERS) for sampled slow queries and logs the plan.
+ * <p>
+ * ANALYZE executes the query again, so only SELECTs are explained, inside a read-only transaction that is rolled
+ * back, with a statement timeout. Plans run one at a time on a background thread against the unproxied DataSource;
+ * when a backlog builds up further samples are dropped rather than adding load to a database that is already slow.
+ */
+@Slf4j
+public class SlowQueryExplainer {
+
+    private final DataSource dataSource;
+    private final int timeoutSeconds;
+    private final ThreadPoolExecutor executor;
+    private volatile Boolean postgres;
+
+    public SlowQueryExplainer(DataSource dataSource, Duration timeout) {
+        this.dataSource = dataSource;
+        this.timeoutSeconds = (int) Math.max(1, timeout.toSeconds());
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16), runnable -> {
+            Thread thread = new Thread(runnable, "slow-query-explain");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    public void explain(String sql, List<ParameterSetOperation> parameters, String endpoint) {
+        if (!isSelect(sql) || Boolean.FALSE.equals(postgres)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                log.warn("Plan of slow query on {}: {}\n{}", endpoint, sql, run(sql, parameters));
+            } catch (Exception e) {
+                log.debug("Could not explain slow query {}", sql, e);
+            }
+        });
+    }
+
+    private String run(String sql, List<ParameterSetOperation> parameters) throws SQLException, ReflectiveOperationException {
+        try (Connection connection = dataSource.getConnection()) {
+            if (postgres == null) {
+                postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+            }
+            if (!postgres) {
+                return "(EXPLAIN ANALYZE needs PostgreSQL)";
+            }
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) " + sql)) {
+                statement.setQueryTimeout(timeoutSeconds);
+                for (ParameterSetOperation operation : parameters) {
+                    if (!ParameterSetOperation.isRegisterOutParameterOperation(operation)) {
+                        invoke(operation, statement);
+                    }
+                }
+                StringJoiner plan = new StringJoiner("\n");
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        plan.add(rows.getString(1));
+                    }
+                }
+                return plan.toString();
+            } finally {
+                connection.rollback();
+                connection.setReadOnly(false);
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    // replays the recorded setXxx call on the EXPLAIN statement
+    private static void invoke(ParameterSetOperation operation, PreparedStatement statement) throws SQLException, ReflectiveOperationException {
+        try {
+            operation.getMethod().invoke(statement, operation.getArgs());
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw e;
+        }
+    }
+
+    static boolean isSelect(String sql) {
+        return sql.stripLeading().toLowerCase(Locale.ROOT).startsWith("select");
+    }
+}
@@ -0,0 +1,65 @@
+package com.khoinguyen.core.configuration;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SQL executed while handling one request: statements with their durations and the Hibernate query plan cache
+ * hits and misses. Bound to the request thread by {@link SqlTracingConfig}; work on other threads is not traced.
+ */
+@Getter
+public class SqlTrace {
+
+    // keeps a runaway request (N+1 over a large page) from holding every statement it ran
+    static final int MAX_STATEMENTS = 200;
+
+    private static final ThreadLocal<SqlTrace> CURRENT = new ThreadLocal<>();
+
+    private final String endpoint;
+    private final List<Statement> statements = new ArrayList<>();
+    private int statementCount;
+    private long elapsedMillis;
+    private int planCacheHits;
+    private int planCacheMisses;
+
+    SqlTrace(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public static SqlTrace begin(String endpoint) {
+        SqlTrace trace = new SqlTrace(endpoint);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    public static SqlTrace current() {
+        return CURRENT.get();
+    }
+
+    public static SqlTrace end() {
+        SqlTrace trace = CURRENT.get();
+        CURRENT.remove();
+        return trace;
+    }
+
+    void statement(String sql, long elapsedMillis) {
+        statementCount++;
+        this.elapsedMillis += elapsedMillis;
+        if (statements.size() < MAX_STATEMENTS) {
+            statements.add(new Statement(sql, elapsedMillis));
+        }
+    }
+
+    void planCacheHit() {
+        planCacheHits++;
+    }
+
+    void planCacheMiss() {
+        planCacheMisses++;
+    }
+
+    public record Statement(String sql, long elapsedMillis) {
+    }
+}
@@ -0,0 +1,160 @@
+package com.khoinguyen.core.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.StatementType;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Adds every JDBC statement to the request's {@link SqlTrace} and logs the ones slower than
+ * app.tracing.slow-query-threshold with their bind parameters and endpoint. Parameters bound to one of the
+ * app.tracing.masked-columns are logged as ***. A sample of the slow queries is handed to the
+ * {@link SlowQueryExplainer}.
+ */
+@Slf4j
+public class SqlTraceListener implements QueryExecutionListener {
+
+    private static final int MAX_PARAMETER_LENGTH = 100;
+
+    private static final String MASK = "***";
+
+    // the column a placeholder is compared with or assigned to: "email = ?", "lower(u.email) like ?"
+    private static final Pattern COMPARED_COLUMN = Pattern.compile(
+            "(?:\\w+\\.)?(\\w+)\\)?\\s*(?:=|<>|!=|<=|>=|<|>|like|ilike)\\s*$", Pattern.CASE_INSENSITIVE);
+
+    // the column list of an insert; Hibernate binds one placeholder per column, row after row
+    private static final Pattern INSERT_COLUMNS = Pattern.compile(
+            "^\\s*insert\\s+into\\s+[\\w.]+\\s*\\(([^)]*)\\)\\s*values", Pattern.CASE_INSENSITIVE);
+
+    private final long thresholdMillis;
+    private final double explainSampleRate;
+    private final SlowQueryExplainer explainer;
+    private final Set<String> maskedColumns;
+
+    public SqlTraceListener(Duration threshold, double explainSampleRate, SlowQueryExplainer explainer,
+                            Collection<String> maskedColumns) {
+        this.thresholdMillis = threshold.toMillis();
+        this.explainSampleRate = explainSampleRate;
+        this.explainer = explainer;
+        this.maskedColumns = lowerCase(maskedColumns);
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        SqlTrace trace = SqlTrace.current();
+        long elapsed = execInfo.getElapsedTime();
+        for (QueryInfo query : queryInfoList) {
+            if (trace != null) {
+                trace.statement(query.getQuery(), elapsed);
+            }
+        }
+        if (elapsed < thresholdMillis) {
+            return;
+        }
+        String endpoint = trace != null ? trace.getEndpoint() : "thread " + Thread.currentThread().getName();
+        for (QueryInfo query : queryInfoList) {
+            log.warn("Slow query ({} ms) on {}: {} {}", elapsed, endpoint, query.getQuery(), formatParameters(query, maskedColumns));
+            if (explainer != null && execInfo.getStatementType() != StatementType.CALLABLE
+                    && ThreadLocalRandom.current().nextDouble() < explainSampleRate) {
+                List<List<ParameterSetOperation>> parameters = query.getParametersList();
+                explainer.explain(query.getQuery(), parameters.isEmpty() ? List.of() : parameters.get(0), endpoint);
+            }
+        }
+    }
+
+    /**
+     * Bind parameters as [1=value, 2=value]; a batch shows its size and first row. Values of the masked columns
+     * (lower case) are replaced by ***.
+     */
+    static String formatParameters(QueryInfo query, Set<String> maskedColumns) {
+        List<List<ParameterSetOperation>> parameters = query.getParametersList();
+        if (parameters.isEmpty()) {
+            return "[]";
+        }
+        Set<Integer> masked = maskedParameters(query.getQuery(), maskedColumns);
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (ParameterSetOperation operation : parameters.get(0)) {
+            Object[] args = operation.getArgs();
+            Object value = ParameterSetOperation.isSetNullParameterOperation(operation) ? null : args[1];
+            joiner.add(args[0] + "=" + (masked.contains(args[0]) && value != null ? MASK : abbreviate(value)));
+        }
+        return parameters.size() == 1 ? joiner.toString() : "batch of " + parameters.size() + ", first " + joiner;
+    }
+
+    /**
+     * Indexes (1-based) of the placeholders of {@code sql} bound to one of {@code maskedColumns}: the values of an
+     * insert by position, elsewhere the column right before the comparison. Placeholders whose column cannot be told
+     * this way are not masked.
+     */
+    static Set<Integer> maskedParameters(String sql, Set<String> maskedColumns) {
+        Set<Integer> masked = new HashSet<>();
+        if (maskedColumns.isEmpty()) {
+            return masked;
+        }
+        Matcher insert = INSERT_COLUMNS.matcher(sql);
+        List<String> insertColumns = insert.find()
+                ? Arrays.stream(insert.group(1).split(",")).map(SqlTraceListener::columnName).toList()
+                : List.of();
+        int index = 0;
+        boolean quoted = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (c == '?' && !quoted) {
+                index++;
+                String column = null;
+                if (!insertColumns.isEmpty() && i > insert.end()) {
+                    column = insertColumns.get((index - 1) % insertColumns.size());
+                } else {
+                    Matcher compared = COMPARED_COLUMN.matcher(sql.substring(0, i));
+                    if (compared.find()) {
+                        column = columnName(compared.group(1));
+                    }
+                }
+                if (column != null && maskedColumns.contains(column)) {
+                    masked.add(index);
+                }
+            }
+        }
+        return masked;
+    }
+
+    private static Set<String> lowerCase(Collection<String> columns) {
+        return columns.stream()
+                .map(SqlTraceListener::columnName)
+                .filter(column -> !column.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private static String columnName(String identifier) {
+        return identifier.trim().replace("\"", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static String abbreviate(Object value) {
+        if (value instanceof byte[] bytes) {
+            return "<" + bytes.length + " bytes>";
+        }
+        String text = String.valueOf(value);
+        return text.length() <= MAX_PARAMETER_LENGTH ? text : text.substring(0, MAX_PARAMETER_LENGTH) + "...";
+    }
+}
@@ -0,0 +1,158 @@
+package com.khoinguyen.core.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL tracing (app.tracing.enabled): the DataSource is wrapped by datasource-proxy so every JDBC statement lands
+ * in the request's {@link SqlTrace}, and Hibernate statistics are switched on to attribute query plan cache hits.
+ * At the end of a request the trace is published as jdbc.request.time and hibernate.query.plan.cache and logged at
+ * DEBUG, with the statements themselves at TRACE. Slow queries are logged by {@link SqlTraceListener}.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "app.tracing.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class SqlTracingConfig implements WebMvcConfigurer {
+
+    private final MeterRegistry meterRegistry;
+
+    // one entry per endpoint, so publishing a trace only looks its meters up
+    private final Map<Endpoint, EndpointMeters> meters = new ConcurrentHashMap<>();
+
+    private record Endpoint(String method, String uri) {
+    }
+
+    private record EndpointMeters(Timer jdbcTime, Counter planCacheHits, Counter planCacheMisses) {
+    }
+
+    @Bean
+    public static BeanPostProcessor tracingDataSourcePostProcessor(
+            @Value("${app.tracing.slow-query-threshold:500ms}") Duration threshold,
+            @Value("${app.tracing.explain.sample-rate:0}") double explainSampleRate,
+            @Value("${app.tracing.explain.timeout:10s}") Duration explainTimeout,
+            @Value("${app.tracing.masked-columns:password,email,phone}") String[] maskedColumns) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource) {
+                    return bean;
+                }
+                SlowQueryExplainer explainer = explainSampleRate > 0 ? new SlowQueryExplainer(dataSource, explainTimeout) : null;
+                return ProxyDataSourceBuilder.create(beanName, dataSource)
+                        .listener(new SqlTraceListener(threshold, explainSampleRate, explainer, List.of(maskedColumns)))
+                        .build();
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer tracingStatisticsCustomizer() {
+        return properties -> {
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+            properties.put(AvailableSettings.STATS_BUILDER, new TracingStatisticsFactory());
+            // otherwise every session logs its metrics at INFO
+            properties.put(AvailableSettings.LOG_SESSION_METRICS, false);
+        };
+    }
+
+    @Override
+    public void addInterceptors(@NonNull InterceptorRegistry registry) {
+        registry.addInterceptor(new AsyncHandlerInterceptor() {
+            @Override
+            public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) {
+                SqlTrace.begin(endpoint(request, handler));
+                return true;
+            }
+
+            // the rest of an async request runs elsewhere; do not leave the trace on this thread
+            @Override
+            public void afterConcurrentHandlingStarted(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) {
+                SqlTrace.end();
+            }
+
+            @Override
+            public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler, Exception ex) {
+                SqlTrace trace = SqlTrace.end();
+                if (trace != null && trace.getStatementCount() > 0) {
+                    publish(request, trace);
+                }
+            }
+        });
+    }
+
+    private void publish(HttpServletRequest request, SqlTrace trace) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        EndpointMeters meters = this.meters.computeIfAbsent(new Endpoint(request.getMethod(), uri), this::register);
+        meters.jdbcTime().record(trace.getElapsedMillis(), TimeUnit.MILLISECONDS);
+        meters.planCacheHits().increment(trace.getPlanCacheHits());
+        meters.planCacheMisses().increment(trace.getPlanCacheMisses());
+
+        if (log.isDebugEnabled()) {
+            int lookups = trace.getPlanCacheHits() + trace.getPlanCacheMisses();
+            log.debug("SQL trace of {}: {} statements in {} ms, query plan cache {}/{} hits", trace.getEndpoint(),
+                    trace.getStatementCount(), trace.getElapsedMillis(), trace.getPlanCacheHits(), lookups);
+        }
+        if (log.isTraceEnabled()) {
+            trace.getStatements().forEach(statement -> log.trace("  {} ms: {}", statement.elapsedMillis(), statement.sql()));
+        }
+    }
+
+    private EndpointMeters register(Endpoint endpoint) {
+        return new EndpointMeters(Timer.builder("jdbc.request.time")
+                .description("Time spent executing JDBC statements while handling a request")
+                .tag("method", endpoint.method())
+                .tag("uri", endpoint.uri())
+                .publishPercentileHistogram()
+                .register(meterRegistry),
+                planCacheCounter(endpoint.method(), endpoint.uri(), "hit"),
+                planCacheCounter(endpoint.method(), endpoint.uri(), "miss"));
+    }
+
+    private Counter planCacheCounter(String method, String uri, String result) {
+        return Counter.builder("hibernate.query.plan.cache")
+                .description("Hibernate query plan cache lookups made while handling a request")
+                .tag("method", method)
+                .tag("uri", uri)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    // e.g. "GET /user/list (UserController#getAllUsersWithSortBy)"
+    private static String endpoint(HttpServletRequest request, Object handler) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = request.getMethod() + " " + (pattern == null ? request.getRequestURI() : pattern);
+        if (handler instanceof HandlerMethod method) {
+            endpoint += " (" + method.getBeanType().getSimpleName() + "#" + method.getMethod().getName() + ")";
+        }
+        return endpoint;
+    }
+}
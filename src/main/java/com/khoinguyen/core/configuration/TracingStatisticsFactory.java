@@ -0,0 +1,37 @@
+package com.khoinguyen.core.configuration;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.StatisticsImpl;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.hibernate.stat.spi.StatisticsImplementor;
+
+/**
+ * Hibernate statistics that also attribute query plan cache hits and misses to the request's {@link SqlTrace}.
+ * Hibernate reports them on the thread that creates the query, so a thread-local trace sees its own share of the
+ * global counters.
+ */
+public class TracingStatisticsFactory implements StatisticsFactory {
+
+    @Override
+    public StatisticsImplementor buildStatistics(SessionFactoryImplementor sessionFactory) {
+        return new StatisticsImpl(sessionFactory) {
+            @Override
+            public void queryPlanCacheHit(String query) {
+                super.queryPlanCacheHit(query);
+                SqlTrace trace = SqlTrace.current();
+                if (trace != null) {
+                    trace.planCacheHit();
+                }
+            }
+
+            @Override
+            public void queryPlanCacheMiss(String query) {
+                super.queryPlanCacheMiss(query);
+                SqlTrace trace = SqlTrace.current();
+                if (trace != null) {
+                    trace.planCacheMiss();
+                }
+            }
+        };
+    }
+}
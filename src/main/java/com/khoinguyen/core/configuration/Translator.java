@@ -1,23 +1,116 @@
 package com.khoinguyen.core.configuration;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Resolves messages of the supported locales from an immutable table loaded from messages_*.properties, so the
+ * read path is two map lookups without locks. The table is rebuilt every app.i18n.reload-interval and swapped in
+ * as a whole. Codes or locales missing from it fall back to the {@link ResourceBundleMessageSource}, the only path
+ * timed by translator.lookup.
+ */
+@Slf4j
 @Component
-public class Translator {
+public class Translator implements DisposableBean {
+
+    private static final String BASENAME = "messages";
 
     private static ResourceBundleMessageSource messageSource;
 
-    private Translator(@Autowired ResourceBundleMessageSource messageSource) {
+    private static Timer lookupTimer;
+
+    // language -> code -> message
+    private static volatile Map<String, Map<String, String>> messages = Map.of();
+
+    private final ScheduledExecutorService reloader;
+
+    private Translator(@Autowired ResourceBundleMessageSource messageSource, @Autowired MeterRegistry meterRegistry,
+                       @Value("${app.i18n.reload-interval:1h}") Duration reloadInterval) {
         Translator.messageSource = messageSource;
+        Translator.lookupTimer = Timer.builder("translator.lookup")
+                .description("Translator.toLocale message resolution")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        reload();
+        if (reloadInterval.isZero()) {
+            reloader = null;
+        } else {
+            reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "messages-reloader");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reloader.scheduleWithFixedDelay(Translator::reloadQuietly, reloadInterval.toMillis(), reloadInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
     }
 
     public static String toLocale(String msgCode) {
         Locale locale = LocaleContextHolder.getLocale();
-        return messageSource.getMessage(msgCode, null, locale);
+        // en_US is served by messages_en, as ResourceBundle would
+        Map<String, String> localized = messages.get(locale.getLanguage());
+        String message = localized == null ? null : localized.get(msgCode);
+        if (message != null) {
+            return message;
+        }
+        return lookupTimer.record(() -> messageSource.getMessage(msgCode, null, locale));
+    }
+
+    static void reload() {
+        Map<String, Map<String, String>> table = new HashMap<>();
+        for (Locale locale : LocaleResolver.LOCALES) {
+            Resource resource = new ClassPathResource(BASENAME + "_" + locale + ".properties");
+            if (!resource.exists()) {
+                continue;
+            }
+            try {
+                Properties properties = PropertiesLoaderUtils.loadProperties(new EncodedResource(resource, StandardCharsets.UTF_8));
+                Map<String, String> localized = new HashMap<>();
+                properties.stringPropertyNames().forEach(code -> localized.put(code, properties.getProperty(code)));
+                table.put(locale.getLanguage(), Map.copyOf(localized));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot load " + resource, e);
+            }
+        }
+        messages = Map.copyOf(table);
+    }
+
+    // a broken edit keeps the previous table
+    private static void reloadQuietly() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("Reloading {}_*.properties failed, keeping the loaded messages", BASENAME, e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
     }
 }
@@ -0,0 +1,42 @@
+package com.khoinguyen.core.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khoinguyen.core.service.UserChangeSink;
+import com.khoinguyen.core.service.impl.FileUserChangeSink;
+import com.khoinguyen.core.service.impl.MemoryUserChangeSink;
+import com.khoinguyen.core.service.impl.RedisUserChangeSink;
+import com.khoinguyen.core.util.UserChangeSinkType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.file.Path;
+
+/**
+ * The sink the outbox relay publishes user changes to, chosen by app.outbox.sink.
+ */
+@Slf4j
+@Configuration
+public class UserChangeSinkConfig {
+
+    @Bean
+    public UserChangeSink userChangeSink(@Value("${app.outbox.sink:none}") UserChangeSinkType type,
+                                         ObjectMapper objectMapper,
+                                         ObjectProvider<StringRedisTemplate> redisTemplate,
+                                         @Value("${app.outbox.memory-capacity:10000}") int memoryCapacity,
+                                         @Value("${app.outbox.file-path:user-changes.ndjson}") Path filePath,
+                                         @Value("${app.outbox.redis-stream:core:user-changes}") String redisStream,
+                                         @Value("${app.outbox.redis-max-length:1000000}") long redisMaxLength) {
+        log.info("Publishing user changes to {}", type);
+        return switch (type) {
+            case NONE -> changes -> {
+            };
+            case MEMORY -> new MemoryUserChangeSink(memoryCapacity);
+            case FILE -> new FileUserChangeSink(objectMapper, filePath);
+            case REDIS -> new RedisUserChangeSink(redisTemplate.getObject(), redisStream, redisMaxLength);
+        };
+    }
+}
@@ -0,0 +1,143 @@
+package com.khoinguyen.core.controller;
+
+import com.khoinguyen.core.configuration.Translator;
+import com.khoinguyen.core.dto.request.UserRequestDTO;
+import com.khoinguyen.core.dto.response.PageResponse;
+import com.khoinguyen.core.dto.response.ResponseData;
+import com.khoinguyen.core.dto.response.ResponseError;
+import com.khoinguyen.core.dto.response.UserDetailResponse;
+import com.khoinguyen.core.exception.ResourceNotFoundException;
+import com.khoinguyen.core.service.ReactiveUserService;
+import com.khoinguyen.core.util.UserStatus;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking variant of {@link UserController} on R2DBC, enabled per deployment with app.reactive.enabled.
+ * Handlers return Mono/Flux, so no request thread waits on the database; lists requested as
+ * application/x-ndjson are written row by row as the query produces them.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/reactive/user")
+@Validated
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.reactive.enabled", havingValue = "true")
+@Tag(name = "Reactive User Controller")
+public class ReactiveUserController {
+
+    private final ReactiveUserService userService;
+
+    private static final String ERROR_MESSAGE = "errorMessage={}";
+
+    @Operation(method = "POST", summary = "Add new user", description = "Send a request via this API to create new user")
+    @PostMapping(value = "/")
+    public Mono<ResponseData<?>> addUser(@Valid @RequestBody UserRequestDTO request) {
+        log.info("Request add user, {} {}", request.getFirstName(), request.getLastName());
+
+        String message = Translator.toLocale("user.add.success");
+        return userService.saveUser(request)
+                .<ResponseData<?>>map(userId -> ResponseData.<Long>builder()
+                        .status(HttpStatus.CREATED.value())
+                        .message(message)
+                        .data(userId)
+                        .build())
+                .onErrorResume(e -> error(e, "Add user fail"));
+    }
+
+    @Operation(summary = "Update user", description = "Send a request via this API to update user")
+    @PutMapping("/{userId}")
+    public Mono<ResponseData<?>> updateUser(@PathVariable @Min(1) int userId, @Valid @RequestBody UserRequestDTO user) {
+        log.info("Request update userId={}", userId);
+
+        return done(userService.updateUser(userId, user), HttpStatus.ACCEPTED, "user.upd.success", "Update user fail");
+    }
+
+    @Operation(summary = "Change status of user", description = "Send a request via this API to change status of user")
+    @PatchMapping("/{userId}")
+    public Mono<ResponseData<?>> updateStatus(@Min(1) @PathVariable int userId, @RequestParam UserStatus status) {
+        return done(userService.changeStatus(userId, status), HttpStatus.ACCEPTED, "user.change.success", "Change user fail");
+    }
+
+    @Operation(summary = "Delete user permanently", description = "Send a request via this API to delete user permanently")
+    @DeleteMapping("/{userId}")
+    public Mono<ResponseData<?>> deleteUser(@PathVariable @Min(value = 1, message = "userId must be greater than 0") int userId) {
+        log.info("Request delete userId={}", userId);
+
+        return done(userService.deleteUser(userId), HttpStatus.NO_CONTENT, "user.del.success", "Delete user fail");
+    }
+
+    @Operation(summary = "Get user detail", description = "Send a request via this API to get user information")
+    @GetMapping("/{userId}")
+    public Mono<ResponseData<?>> getUser(@PathVariable @Min(1) int userId) {
+        log.info("Request get user detail, userId={}", userId);
+
+        return userService.getUser(userId)
+                .<ResponseData<?>>map(user -> ResponseData.<UserDetailResponse>builder()
+                        .status(HttpStatus.OK.value())
+                        .message("Get successfully")
+                        .data(user)
+                        .build())
+                .onErrorResume(ResourceNotFoundException.class, e -> error(e, e.getMessage()));
+    }
+
+    @Operation(summary = "Get list of users per pageNo with sort by multiple columns and search",
+            description = "Send a request via this API to get user list by pageNo and pageSize with sort by multiple columns")
+    @GetMapping(value = {"/list", "/list-with-sort-by-multiple-columns", "/list-with-sort-by-multiple-columns-search"},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseData<PageResponse<?>>> getAllUsers(@RequestParam(defaultValue = "0", required = false) int pageNo,
+                                                           @Min(10) @RequestParam(defaultValue = "20", required = false) int pageSize,
+                                                           @RequestParam(required = false) String search,
+                                                           @RequestParam(required = false) String... sortBy) {
+        log.info("Request get user list, pageNo={}, pageSize={}", pageNo, pageSize);
+
+        return userService.getUserPage(pageNo, pageSize, search, sortBy)
+                .map(users -> ResponseData.<PageResponse<?>>builder()
+                        .status(HttpStatus.OK.value())
+                        .message("users")
+                        .data(users)
+                        .build());
+    }
+
+    @Operation(summary = "Stream list of users per pageNo with sort by multiple columns and search",
+            description = "Same as the JSON list, but with Accept: application/x-ndjson every user is written as soon as it is read")
+    @GetMapping(value = {"/list", "/list-with-sort-by-multiple-columns", "/list-with-sort-by-multiple-columns-search"},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserDetailResponse> streamAllUsers(@RequestParam(defaultValue = "0", required = false) int pageNo,
+                                                   @Min(10) @RequestParam(defaultValue = "20", required = false) int pageSize,
+                                                   @RequestParam(required = false) String search,
+                                                   @RequestParam(required = false) String... sortBy) {
+        log.info("Request stream user list, pageNo={}, pageSize={}", pageNo, pageSize);
+
+        return userService.getUsers(pageNo, pageSize, search, sortBy);
+    }
+
+    private static Mono<ResponseData<?>> done(Mono<Void> action, HttpStatus status, String messageCode, String errorMessage) {
+        String message = Translator.toLocale(messageCode);
+        return action
+                .then(Mono.<ResponseData<?>>fromSupplier(() -> ResponseData.<Void>builder()
+                        .status(status.value())
+                        .message(message)
+                        .build()))
+                .onErrorResume(e -> error(e, errorMessage));
+    }
+
+    private static Mono<ResponseData<?>> error(Throwable e, String message) {
+        log.error(ERROR_MESSAGE, e.getMessage(), e.getCause());
+        return Mono.just(ResponseError.builder()
+                .status(HttpStatus.BAD_REQUEST.value())
+                .message(message)
+                .build());
+    }
+}
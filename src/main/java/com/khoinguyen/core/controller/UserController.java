@@ -1,23 +1,53 @@
 package com.khoinguyen.core.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.khoinguyen.core.configuration.Translator;
+import com.khoinguyen.core.dto.request.UserFilter;
 import com.khoinguyen.core.dto.request.UserRequestDTO;
+import com.khoinguyen.core.dto.request.UserStatusChangeRequest;
 import com.khoinguyen.core.dto.response.PageResponse;
 import com.khoinguyen.core.dto.response.ResponseData;
 import com.khoinguyen.core.dto.response.ResponseError;
 import com.khoinguyen.core.dto.response.UserDetailResponse;
+import com.khoinguyen.core.dto.response.UserImportResponse;
+import com.khoinguyen.core.exception.InvalidRequestException;
+import com.khoinguyen.core.exception.PreconditionFailedException;
 import com.khoinguyen.core.exception.ResourceNotFoundException;
+import com.khoinguyen.core.service.UserChangeService;
+import com.khoinguyen.core.service.UserExportService;
+import com.khoinguyen.core.service.UserImportService;
 import com.khoinguyen.core.service.UserService;
+import com.khoinguyen.core.service.UserStatusService;
+import com.khoinguyen.core.util.CountMode;
+import com.khoinguyen.core.util.EntityTag;
+import com.khoinguyen.core.util.ExportFormat;
+import com.khoinguyen.core.util.Gender;
 import com.khoinguyen.core.util.UserStatus;
+import com.khoinguyen.core.util.UserType;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @RestController
@@ -29,8 +59,19 @@ public class UserController {
 
     private final UserService userService;
 
+    private final UserImportService userImportService;
+
+    private final UserExportService userExportService;
+
+    private final UserStatusService userStatusService;
+
+    private final UserChangeService userChangeService;
+
     private static final String ERROR_MESSAGE = "errorMessage={}";
 
+    // user data is private to the caller, and clients must revalidate (cheaply, with If-None-Match) before reuse
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     @Operation(method = "POST", summary = "Add new user", description = "Send a request via this API to create new user")
     @PostMapping(value = "/")
     public ResponseData<Long> addUser(@Valid @RequestBody UserRequestDTO request) {
@@ -54,17 +95,121 @@ public class UserController {
         }
     }
 
-    @Operation(summary = "Update user", description = "Send a request via this API to update user")
+    @Operation(method = "POST", summary = "Import users in bulk",
+            description = "Send a JSON array or an NDJSON stream of users via this API to create them in batches; invalid records are reported by position")
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseData<UserImportResponse> importUsers(HttpServletRequest request) {
+        log.info("Request import users, contentType={}", request.getContentType());
+
+        try {
+            UserImportResponse result = userImportService.importUsers(request.getInputStream());
+            return ResponseData.<UserImportResponse>builder()
+                    .status(HttpStatus.OK.value())
+                    .message(Translator.toLocale("user.import.success"))
+                    .data(result)
+                    .build();
+        } catch (Exception e) {
+            log.error(ERROR_MESSAGE, e.getMessage(), e.getCause());
+            return ResponseError.<UserImportResponse>builder()
+                    .status(HttpStatus.BAD_REQUEST.value())
+                    .message("Import users fail")
+                    .build();
+        }
+    }
+
+    @Operation(summary = "Export users", description = "Send a request via this API to stream every user matching the filters of " +
+            "/list-with-sort-by-multiple-columns-search as CSV or NDJSON, optionally one row per address")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "CSV", required = false) ExportFormat format,
+                                                             @RequestParam(required = false) String search,
+                                                             @RequestParam(required = false) UserStatus status,
+                                                             @RequestParam(required = false) UserType type,
+                                                             @RequestParam(required = false) Gender gender,
+                                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateOfBirthFrom,
+                                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateOfBirthTo,
+                                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate createdFrom,
+                                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate createdTo,
+                                                             @RequestParam(required = false) String city,
+                                                             @RequestParam(defaultValue = "false", required = false) boolean includeAddresses) {
+        log.info("Request export users, format={}, includeAddresses={}", format, includeAddresses);
+
+        UserFilter filter = UserFilter.builder()
+                .search(search)
+                .status(status)
+                .type(type)
+                .gender(gender)
+                .dateOfBirthFrom(dateOfBirthFrom)
+                .dateOfBirthTo(dateOfBirthTo)
+                .createdFrom(createdFrom)
+                .createdTo(createdTo)
+                .city(city)
+                .build();
+        StreamingResponseBody body = out -> userExportService.exportUsers(out, format, filter, includeAddresses);
+        return ResponseEntity.ok()
+                .contentType(format == ExportFormat.CSV ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=users." + format.name().toLowerCase())
+                .body(body);
+    }
+
+    @Operation(summary = "Get user changes", description = "Send a request via this API to read the users created, updated, " +
+            "status-changed or deleted after since (nextCursor of the previous response), oldest first. Omit since to read " +
+            "the retained history, or pass since=now to start from the latest change. 410 when the changes after since " +
+            "were purged: resync the users and continue from since=now")
+    @GetMapping("/changes")
+    public ResponseData<PageResponse<?>> getChanges(@RequestParam(required = false) String since,
+                                                    @Min(1) @Max(1000) @RequestParam(defaultValue = "100", required = false) int limit) {
+        log.info("Request get user changes, since={}, limit={}", since, limit);
+
+        return ResponseData.<PageResponse<?>>builder()
+                .status(HttpStatus.OK.value())
+                .message("user changes")
+                .data(userChangeService.getChanges(since, limit))
+                .build();
+    }
+
+    @Operation(summary = "Update user", description = "Send a request via this API to update user. " +
+            "Pass the ETag of the user as If-Match to update it only if nobody changed it since; 412 otherwise")
     @PutMapping("/{userId}")
-    public ResponseData<?> updateUser(@PathVariable @Min(1) int userId, @Valid @RequestBody UserRequestDTO user) {
+    public ResponseData<?> updateUser(@PathVariable @Min(1) int userId, @Valid @RequestBody UserRequestDTO user,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Request update userId={}", userId);
 
         try {
-            userService.updateUser(userId, user);
+            userService.updateUser(userId, user, EntityTag.expectedVersion(ifMatch));
+            return ResponseData.<Void>builder()
+                    .status(HttpStatus.ACCEPTED.value())
+                    .message(Translator.toLocale("user.upd.success"))
+                    .build();
+        } catch (PreconditionFailedException | OptimisticLockingFailureException e) {
+            // 412 and 409 from GlobalExceptionHandler
+            throw e;
+        } catch (Exception e) {
+            log.error(ERROR_MESSAGE, e.getMessage(), e.getCause());
+            return ResponseError.<Long>builder()
+                    .status(HttpStatus.BAD_REQUEST.value())
+                    .message("Update user fail")
+                    .build();
+        }
+    }
+
+    @Operation(summary = "Partially update user", description = "Send a JSON Merge Patch (RFC 7386) of the user via this API; " +
+            "members set to null are removed, addresses replace the list as a whole and only changed rows are written. " +
+            "Honours If-Match like the PUT")
+    @PatchMapping(value = "/{userId}", consumes = "application/merge-patch+json")
+    public ResponseData<?> patchUser(@PathVariable @Min(1) int userId, @RequestBody JsonNode patch,
+                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("Request patch userId={}", userId);
+
+        try {
+            userService.patchUser(userId, patch, EntityTag.expectedVersion(ifMatch));
             return ResponseData.<Void>builder()
                     .status(HttpStatus.ACCEPTED.value())
                     .message(Translator.toLocale("user.upd.success"))
                     .build();
+        } catch (ConstraintViolationException | InvalidRequestException | PreconditionFailedException
+                 | OptimisticLockingFailureException e) {
+            // reported by GlobalExceptionHandler
+            throw e;
         } catch (Exception e) {
             log.error(ERROR_MESSAGE, e.getMessage(), e.getCause());
             return ResponseError.<Long>builder()
@@ -74,15 +219,19 @@ public class UserController {
         }
     }
 
-    @Operation(summary = "Change status of user", description = "Send a request via this API to change status of user")
+    @Operation(summary = "Change status of user", description = "Send a request via this API to change status of user. " +
+            "Honours If-Match like the PUT")
     @PatchMapping("/{userId}")
-    public ResponseData<?> updateStatus(@Min(1) @PathVariable int userId, @RequestParam UserStatus status) {
+    public ResponseData<?> updateStatus(@Min(1) @PathVariable int userId, @RequestParam UserStatus status,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            userService.changeStatus(userId, status);
+            userService.changeStatus(userId, status, EntityTag.expectedVersion(ifMatch));
             return ResponseData.<Void>builder()
                     .status(HttpStatus.ACCEPTED.value())
                     .message(Translator.toLocale("user.change.success"))
                     .build();
+        } catch (PreconditionFailedException | OptimisticLockingFailureException e) {
+            throw e;
         } catch (Exception e) {
             log.error(ERROR_MESSAGE, e.getMessage(), e.getCause());
             return ResponseError.<Long>builder()
@@ -92,6 +241,22 @@ public class UserController {
         }
     }
 
+    @Operation(summary = "Change status of users in bulk", description = "Send a request via this API to change status of many users; " +
+            "changes are queued, and the response is sent once they are committed. 503 when the queue is full")
+    @PatchMapping("/status")
+    public CompletableFuture<ResponseData<Integer>> updateStatuses(@Valid @RequestBody UserStatusChangeRequest request) {
+        log.info("Request change status of {} users to {}", request.getUserIds().size(), request.getStatus());
+
+        // resolved here, the acknowledgement completes on the queue's thread
+        String message = Translator.toLocale("user.change.success");
+        return userStatusService.changeStatus(request.getUserIds(), request.getStatus())
+                .thenApply(v -> ResponseData.<Integer>builder()
+                        .status(HttpStatus.ACCEPTED.value())
+                        .message(message)
+                        .data(request.getUserIds().size())
+                        .build());
+    }
+
     @Operation(summary = "Delete user permanently", description = "Send a request via this API to delete user permanently")
     @DeleteMapping("/{userId}")
     public ResponseData<?> deleteUser(@PathVariable @Min(value = 1, message = "userId must be greater than 0") int userId) {
@@ -112,71 +277,132 @@ public class UserController {
         }
     }
 
-    @Operation(summary = "Get user detail", description = "Send a request via this API to get user information")
+    @Operation(summary = "Get user detail", description = "Send a request via this API to get user information. " +
+            "The ETag header carries the user's version, to be sent back as If-Match when updating it, or as If-None-Match " +
+            "to get a 304 while the user is unchanged")
     @GetMapping("/{userId}")
-    public ResponseData<?> getUser(@PathVariable @Min(1) int userId) {
+    public ResponseEntity<ResponseData<?>> getUser(@PathVariable @Min(1) int userId,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Request get user detail, userId={}", userId);
 
         try {
-            return ResponseData.<UserDetailResponse>builder()
+            // polling clients revalidate against the version alone, without loading or serializing the user
+            if (ifNoneMatch != null) {
+                String tag = EntityTag.of(userService.getUserVersion(userId));
+                if (EntityTag.isNotModified(ifNoneMatch, tag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tag).cacheControl(REVALIDATE).build();
+                }
+            }
+
+            UserDetailResponse user = userService.getUser(userId);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(REVALIDATE);
+            if (user.getVersion() != null) {
+                response.eTag(EntityTag.of(user.getVersion()));
+            }
+            return response.body(ResponseData.<UserDetailResponse>builder()
                     .status(HttpStatus.OK.value())
                     .message("Get successfully")
-                    .data(userService.getUser(userId))
-                    .build();
+                    .data(user)
+                    .build());
         } catch (ResourceNotFoundException e) {
             log.error(ERROR_MESSAGE, e.getMessage(), e.getCause());
-            return ResponseError.<Long>builder()
+            return ResponseEntity.ok(ResponseError.<Long>builder()
                     .status(HttpStatus.BAD_REQUEST.value())
                     .message(e.getMessage())
-                    .build();
+                    .build());
         }
     }
 
-    @Operation(summary = "Get list of users per pageNo", description = "Send a request via this API to get user list by pageNo and pageSize")
+    @Operation(summary = "Get list of users per pageNo", description = "Send a request via this API to get user list by pageNo and pageSize. " +
+            "Pass cursor (empty for the first page, then nextCursor) to page by keyset instead of pageNo")
     @GetMapping("/list")
-    public ResponseData<PageResponse> getAllUser(@RequestParam(defaultValue = "0", required = false) int pageNo,
+    public ResponseEntity<ResponseData<PageResponse>> getAllUser(@RequestParam(defaultValue = "0", required = false) int pageNo,
                                       @Min(10) @RequestParam(defaultValue = "20", required = false) int pageSize,
-                                      @RequestParam(required = false) String sortBy) {
+                                      @RequestParam(required = false) String sortBy,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(defaultValue = "EXACT", required = false) CountMode count,
+                                      @RequestParam(defaultValue = "false", required = false) boolean includeAddresses) {
         log.info("Request get user list, pageNo={}, pageSize={}", pageNo, pageSize);
 
-        PageResponse<PageResponse> users = userService.getAllUsersWithSortBy(pageNo, pageSize, sortBy);
-        return ResponseData.<PageResponse>builder()
-                .status(HttpStatus.OK.value())
-                .message("users")
-                .data(users)
-                .build();
+        PageResponse<PageResponse> users = userService.getAllUsersWithSortBy(pageNo, pageSize, sortBy, cursor, count, includeAddresses);
+        return page(users);
     }
 
     @Operation(summary = "Get list of users per pageNo with sort by multiple columns",
-            description = "Send a request via this API to get user list by pageNo and pageSize with sort by multiple columns")
+            description = "Send a request via this API to get user list by pageNo and pageSize with sort by multiple columns. " +
+                    "Pass cursor (empty for the first page, then nextCursor) to page by keyset instead of pageNo")
     @GetMapping("/list-with-sort-by-multiple-columns")
-    public ResponseData<PageResponse> getAllUsersWithSortByMultipleColumn(@RequestParam(defaultValue = "0", required = false) int pageNo,
+    public ResponseEntity<ResponseData<PageResponse>> getAllUsersWithSortByMultipleColumn(@RequestParam(defaultValue = "0", required = false) int pageNo,
                                                                @Min(10) @RequestParam(defaultValue = "20", required = false) int pageSize,
+                                                               @RequestParam(required = false) String cursor,
+                                                               @RequestParam(defaultValue = "EXACT", required = false) CountMode count,
+                                                               @RequestParam(defaultValue = "false", required = false) boolean includeAddresses,
                                                                @RequestParam(required = false) String... sortBy) {
         log.info("Request get user list with sort by multiple columns, pageNo={}, pageSize={}", pageNo, pageSize);
 
-        PageResponse<PageResponse> users = userService.getAllUsersWithSortByMultipleColumns(pageNo, pageSize, sortBy);
-        return ResponseData.<PageResponse>builder()
-                .status(HttpStatus.OK.value())
-                .message("users")
-                .data(users)
-                .build();
+        PageResponse<PageResponse> users = userService.getAllUsersWithSortByMultipleColumns(pageNo, pageSize, cursor, count, includeAddresses, sortBy);
+        return page(users);
     }
 
     @Operation(summary = "Get list of users per pageNo with sort by multiple columns amd search",
-            description = "Send a request via this API to get user list by pageNo and pageSize with sort by multiple columns")
+            description = "Send a request via this API to get user list by pageNo and pageSize, filtered by search (name or email), " +
+                    "status, type, gender, date of birth range, creation date range and city, and sorted by one whitelisted column")
     @GetMapping("/list-with-sort-by-multiple-columns-search")
-    public ResponseData<PageResponse> getAllUsersWithSortByMultipleColumnAndSearch(@RequestParam(defaultValue = "0", required = false) int pageNo,
+    public ResponseEntity<ResponseData<PageResponse>> getAllUsersWithSortByMultipleColumnAndSearch(@RequestParam(defaultValue = "0", required = false) int pageNo,
                                                                                    @RequestParam(defaultValue = "20", required = false) int pageSize,
                                                                                    @RequestParam(required = false) String search,
-                                                                                   @RequestParam(required = false) String sortBy) {
+                                                                                   @RequestParam(required = false) UserStatus status,
+                                                                                   @RequestParam(required = false) UserType type,
+                                                                                   @RequestParam(required = false) Gender gender,
+                                                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateOfBirthFrom,
+                                                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateOfBirthTo,
+                                                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate createdFrom,
+                                                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate createdTo,
+                                                                                   @RequestParam(required = false) String city,
+                                                                                   @RequestParam(required = false) String sortBy,
+                                                                                   @RequestParam(defaultValue = "EXACT", required = false) CountMode count) {
         log.info("Request get user list with sort by multiple columns, pageNo={}, pageSize={} and search", pageNo, pageSize);
 
-        PageResponse<?> users = userService.getAllUsersWithSortByMultipleColumnAndSearch(pageNo, pageSize, search, sortBy);
-        return ResponseData.<PageResponse>builder()
+        UserFilter filter = UserFilter.builder()
+                .search(search)
+                .status(status)
+                .type(type)
+                .gender(gender)
+                .dateOfBirthFrom(dateOfBirthFrom)
+                .dateOfBirthTo(dateOfBirthTo)
+                .createdFrom(createdFrom)
+                .createdTo(createdTo)
+                .city(city)
+                .build();
+        PageResponse<?> users = userService.getAllUsersWithSortByMultipleColumnAndSearch(pageNo, pageSize, filter, sortBy, count);
+        return page(users);
+    }
+
+    /**
+     * Pages carry a strong ETag digested from their metadata and the id and version of every row, so an unchanged
+     * page revalidates to a 304 without being serialized. Pages of rows without a version are sent untagged.
+     */
+    private static ResponseEntity<ResponseData<PageResponse>> page(PageResponse<?> users) {
+        ResponseData<PageResponse> body = ResponseData.<PageResponse>builder()
                 .status(HttpStatus.OK.value())
                 .message("users")
                 .data(users)
                 .build();
+
+        StringBuilder content = new StringBuilder()
+                .append(users.getPageNo()).append('/').append(users.getPageSize()).append('/').append(users.getTotalPage())
+                .append('/').append(users.getHasNext()).append('/').append(users.getNextCursor());
+        if (!(users.getItems() instanceof List<?> items)) {
+            return ResponseEntity.ok().cacheControl(REVALIDATE).body(body);
+        }
+        for (Object item : items) {
+            if (!(item instanceof UserDetailResponse user) || user.getVersion() == null) {
+                return ResponseEntity.ok().cacheControl(REVALIDATE).body(body);
+            }
+            content.append(';').append(user.getId()).append(':').append(user.getVersion())
+                    .append(':').append(user.getAddresses() == null ? "-" : user.getAddresses().size());
+        }
+        // HttpEntityMethodProcessor answers a matching If-None-Match with a 304 and no body
+        return ResponseEntity.ok().cacheControl(REVALIDATE).eTag(EntityTag.digest(content.toString())).body(body);
     }
 }
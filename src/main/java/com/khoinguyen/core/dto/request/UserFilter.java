@@ -0,0 +1,49 @@
+package com.khoinguyen.core.dto.request;
+
+import com.khoinguyen.core.util.Gender;
+import com.khoinguyen.core.util.UserStatus;
+import com.khoinguyen.core.util.UserType;
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDate;
+
+/**
+ * Criteria of the user search; every field is optional and set fields are combined with AND.
+ */
+@Builder
+@Getter
+public class UserFilter {
+    // substring of first name, last name or email, case-insensitive
+    private String search;
+
+    private UserStatus status;
+
+    private UserType type;
+
+    private Gender gender;
+
+    // inclusive bounds
+    private LocalDate dateOfBirthFrom;
+
+    private LocalDate dateOfBirthTo;
+
+    // inclusive days of created_at
+    private LocalDate createdFrom;
+
+    private LocalDate createdTo;
+
+    // any address of the user, case-insensitive
+    private String city;
+
+    public boolean hasSearch() {
+        return StringUtils.hasText(search);
+    }
+
+    public boolean isEmpty() {
+        return !hasSearch() && status == null && type == null && gender == null
+                && dateOfBirthFrom == null && dateOfBirthTo == null && createdFrom == null && createdTo == null
+                && !StringUtils.hasText(city);
+    }
+}
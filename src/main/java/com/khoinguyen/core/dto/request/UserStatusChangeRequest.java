@@ -0,0 +1,19 @@
+package com.khoinguyen.core.dto.request;
+
+import com.khoinguyen.core.util.UserStatus;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Set;
+
+@Getter
+@Setter
+public class UserStatusChangeRequest {
+    @NotEmpty(message = "userIds can not empty")
+    private Set<Long> userIds;
+
+    @NotNull(message = "status must be not null")
+    private UserStatus status;
+}
@@ -0,0 +1,35 @@
+package com.khoinguyen.core.dto.response;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.khoinguyen.core.dto.serializer.AddressResponseSerializer;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Builder
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonSerialize(using = AddressResponseSerializer.class)
+public class AddressResponse implements Serializable {
+    private Long id;
+
+    private String apartmentNumber;
+
+    private String floor;
+
+    private String building;
+
+    private String streetNumber;
+
+    private String street;
+
+    private String city;
+
+    private String country;
+
+    private Integer addressType;
+}
@@ -1,5 +1,6 @@
 package com.khoinguyen.core.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Getter;
 
@@ -9,6 +10,11 @@ import lombok.Getter;
 public class PageResponse<T> {
     int pageNo;
     int pageSize;
-    int totalPage;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    Integer totalPage;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    Boolean hasNext;
     T items;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    String nextCursor;
 }
@@ -0,0 +1,32 @@
+package com.khoinguyen.core.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.khoinguyen.core.util.UserChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * One entry of the change feed: which user changed how, and the version it was left at (the user's ETag), so a
+ * consumer can skip changes older than what it already read. Consumers fetch the user itself from GET /user/{id}.
+ */
+@Builder
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserChangeResponse implements Serializable {
+    private long position;
+
+    private long userId;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long version;
+
+    private UserChangeType type;
+
+    private Date occurredAt;
+}
@@ -1,19 +1,26 @@
 package com.khoinguyen.core.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.khoinguyen.core.dto.serializer.UserDetailResponseSerializer;
 import com.khoinguyen.core.util.Gender;
 import com.khoinguyen.core.util.UserStatus;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 import java.io.Serializable;
 import java.util.Date;
+import java.util.List;
 
 @Builder
 @Getter
 @AllArgsConstructor
 @NoArgsConstructor
+@JsonSerialize(using = UserDetailResponseSerializer.class)
 public class UserDetailResponse implements Serializable {
     private Long id;
 
@@ -35,9 +42,22 @@ public class UserDetailResponse implements Serializable {
 
     private UserStatus status;
 
+    // sent as the ETag header rather than in the body
+    @JsonIgnore
+    private Long version;
+
+    @Setter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<AddressResponse> addresses;
+
     public UserDetailResponse(Long id, String firstName, String lastName) {
+        this(id, firstName, lastName, null);
+    }
+
+    public UserDetailResponse(Long id, String firstName, String lastName, Long version) {
         this.id = id;
         this.firstName = firstName;
         this.lastName = lastName;
+        this.version = version;
     }
 }
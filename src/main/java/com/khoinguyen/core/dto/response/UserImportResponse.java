@@ -0,0 +1,23 @@
+package com.khoinguyen.core.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Builder
+@Getter
+public class UserImportResponse {
+    private long total;
+    private long imported;
+    private long failed;
+    private List<Failure> failures;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Failure {
+        private long index;
+        private String message;
+    }
+}
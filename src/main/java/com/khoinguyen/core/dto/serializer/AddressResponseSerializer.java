@@ -0,0 +1,34 @@
+package com.khoinguyen.core.dto.serializer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.khoinguyen.core.dto.response.AddressResponse;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link AddressResponse} field by field, producing what the bean serializer would. Keep the fields in
+ * declaration order when the class changes.
+ */
+public class AddressResponseSerializer extends StdSerializer<AddressResponse> {
+
+    public AddressResponseSerializer() {
+        super(AddressResponse.class);
+    }
+
+    @Override
+    public void serialize(AddressResponse address, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(address);
+        UserDetailResponseSerializer.writeNumberField(gen, "id", address.getId());
+        gen.writeStringField("apartmentNumber", address.getApartmentNumber());
+        gen.writeStringField("floor", address.getFloor());
+        gen.writeStringField("building", address.getBuilding());
+        gen.writeStringField("streetNumber", address.getStreetNumber());
+        gen.writeStringField("street", address.getStreet());
+        gen.writeStringField("city", address.getCity());
+        gen.writeStringField("country", address.getCountry());
+        UserDetailResponseSerializer.writeNumberField(gen, "addressType", address.getAddressType());
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,89 @@
+package com.khoinguyen.core.dto.serializer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.khoinguyen.core.dto.response.AddressResponse;
+import com.khoinguyen.core.dto.response.UserDetailResponse;
+import com.khoinguyen.core.util.Gender;
+import com.khoinguyen.core.util.UserStatus;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link UserDetailResponse} field by field instead of through the reflective bean serializer, since a list
+ * page is mostly these rows. The output is the one of the bean serializer (same fields, order, nulls, enum names
+ * and date format), for JSON and the binary formats alike; keep it in step when the class changes.
+ */
+public class UserDetailResponseSerializer extends StdSerializer<UserDetailResponse> implements ResolvableSerializer {
+
+    private static final AddressResponseSerializer ADDRESS_SERIALIZER = new AddressResponseSerializer();
+
+    // the enum serializers honour @JsonProperty names; resolved once per mapper
+    private JsonSerializer<Object> genderSerializer;
+
+    private JsonSerializer<Object> statusSerializer;
+
+    public UserDetailResponseSerializer() {
+        super(UserDetailResponse.class);
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        genderSerializer = provider.findValueSerializer(Gender.class);
+        statusSerializer = provider.findValueSerializer(UserStatus.class);
+    }
+
+    @Override
+    public void serialize(UserDetailResponse user, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(user);
+        writeNumberField(gen, "id", user.getId());
+        gen.writeStringField("firstName", user.getFirstName());
+        gen.writeStringField("lastName", user.getLastName());
+        gen.writeStringField("email", user.getEmail());
+        gen.writeStringField("phone", user.getPhone());
+        gen.writeFieldName("dateOfBirth");
+        if (user.getDateOfBirth() == null) {
+            gen.writeNull();
+        } else {
+            provider.defaultSerializeDateValue(user.getDateOfBirth(), gen);
+        }
+        writeEnumField(gen, provider, "gender", user.getGender(), genderSerializer);
+        gen.writeStringField("username", user.getUsername());
+        gen.writeStringField("type", user.getType());
+        writeEnumField(gen, provider, "status", user.getStatus(), statusSerializer);
+        // @JsonInclude(NON_NULL)
+        if (user.getAddresses() != null) {
+            gen.writeArrayFieldStart("addresses");
+            for (AddressResponse address : user.getAddresses()) {
+                ADDRESS_SERIALIZER.serialize(address, gen, provider);
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeEnumField(JsonGenerator gen, SerializerProvider provider, String name, Enum<?> value,
+                                       JsonSerializer<Object> serializer) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            serializer.serialize(value, gen, provider);
+        }
+    }
+
+    static void writeNumberField(JsonGenerator gen, String name, Number value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else if (value instanceof Integer i) {
+            gen.writeNumber(i);
+        } else {
+            gen.writeNumber(value.longValue());
+        }
+    }
+}
@@ -3,13 +3,17 @@ package com.khoinguyen.core.dto.validator;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 
-import java.util.regex.Matcher;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 public class EnumPatternValidator implements ConstraintValidator<EnumPattern, Enum<?>> {
     private Pattern pattern;
 
+    // an enum has a fixed set of constants, so each one is matched against the pattern only once
+    private final Map<Enum<?>, Boolean> results = new ConcurrentHashMap<>();
+
     @Override
     public void initialize(EnumPattern enumPattern) {
         try {
@@ -25,7 +29,11 @@ public class EnumPatternValidator implements ConstraintValidator<EnumPattern, En
             return true;
         }
 
-        Matcher m = pattern.matcher(value.name());
-        return m.matches();
+        Boolean result = results.get(value);
+        if (result == null) {
+            result = pattern.matcher(value.name()).matches();
+            results.put(value, result);
+        }
+        return result;
     }
 }
@@ -2,17 +2,16 @@ package com.khoinguyen.core.dto.validator;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 
-import java.util.List;
 import java.util.stream.Stream;
 
 public class EnumValueValidator implements ConstraintValidator<EnumValue, CharSequence> {
-    private List<String> acceptedValues;
+    private String[] acceptedValues;
 
     @Override
     public void initialize(EnumValue enumValue) {
         acceptedValues = Stream.of(enumValue.enumClass().getEnumConstants())
                 .map(Enum::name)
-                .toList();
+                .toArray(String[]::new);
     }
 
     @Override
@@ -21,7 +20,13 @@ public class EnumValueValidator implements ConstraintValidator<EnumValue, CharSe
             return true;
         }
 
-        return acceptedValues.contains(value.toString().toUpperCase());
+        // enums have a handful of constants: a case-insensitive scan beats hashing an upper-cased copy
+        String candidate = value.toString();
+        for (String acceptedValue : acceptedValues) {
+            if (acceptedValue.equalsIgnoreCase(candidate)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
-
@@ -5,17 +5,20 @@ import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
 
 public class GenderSubSetValidator implements ConstraintValidator<GenderSubset, Gender> {
-    private Gender[] genders;
+    private Set<Gender> genders;
 
     @Override
     public void initialize(GenderSubset constraint) {
-        this.genders = constraint.anyOf();
+        this.genders = EnumSet.noneOf(Gender.class);
+        this.genders.addAll(Arrays.asList(constraint.anyOf()));
     }
 
     @Override
     public boolean isValid(Gender value, ConstraintValidatorContext context) {
-        return value == null || Arrays.asList(genders).contains(value);
+        return value == null || genders.contains(value);
     }
 }
@@ -3,6 +3,10 @@ package com.khoinguyen.core.dto.validator;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 
+/**
+ * Hand-written scanner for the accepted phone formats, so a validation neither compiles a regex nor
+ * allocates a matcher.
+ */
 public class PhoneValidator implements ConstraintValidator<PhoneNumber, String> {
 
     @Override
@@ -14,15 +18,59 @@ public class PhoneValidator implements ConstraintValidator<PhoneNumber, String>
         if(phoneNo == null){
             return false;
         }
+        int length = phoneNo.length();
+
         //validate phone numbers of format "0902345345"
-        if (phoneNo.matches("\\d{10}")) return true;
-            //validating phone number with -, . or spaces: 090-234-4567
-        else if(phoneNo.matches("\\d{3}[-\\.\\s]\\d{3}[-\\.\\s]\\d{4}")) return true;
-            //validating phone number with extension length from 3 to 5
-        else //return false if nothing matches the input
-            if(phoneNo.matches("\\d{3}-\\d{3}-\\d{4}\\s(x|(ext))\\d{3,5}")) return true;
-                //validating phone number where area code is in braces ()
-            else return phoneNo.matches("\\(\\d{3}\\)-\\d{3}-\\d{4}");
+        if (length == 10) {
+            return isDigits(phoneNo, 0, 10);
+        }
+        //validating phone number where area code is in braces (): (090)-234-4567
+        if (length == 14 && phoneNo.charAt(0) == '(') {
+            return isDigits(phoneNo, 1, 4) && phoneNo.charAt(4) == ')' && phoneNo.charAt(5) == '-'
+                    && isDigits(phoneNo, 6, 9) && phoneNo.charAt(9) == '-' && isDigits(phoneNo, 10, 14);
+        }
+        if (length < 12 || !isDigits(phoneNo, 0, 3) || !isDigits(phoneNo, 4, 7) || !isDigits(phoneNo, 8, 12)) {
+            return false;
+        }
+
+        char first = phoneNo.charAt(3);
+        char second = phoneNo.charAt(7);
+        //validating phone number with -, . or spaces: 090-234-4567
+        if (length == 12) {
+            return isSeparator(first) && isSeparator(second);
+        }
+        //validating phone number with extension length from 3 to 5: 090-234-4567 x123, 090-234-4567 ext12345
+        if (first != '-' || second != '-' || !isWhitespace(phoneNo.charAt(12))) {
+            return false;
+        }
+        int extension;
+        if (phoneNo.startsWith("x", 13)) {
+            extension = 14;
+        } else if (phoneNo.startsWith("ext", 13)) {
+            extension = 16;
+        } else {
+            return false;
+        }
+        int digits = length - extension;
+        return digits >= 3 && digits <= 5 && isDigits(phoneNo, extension, length);
+    }
+
+    private static boolean isDigits(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '-' || c == '.' || isWhitespace(c);
     }
 
+    // same characters as the regex class \s
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
 }
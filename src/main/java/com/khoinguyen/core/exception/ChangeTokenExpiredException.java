@@ -0,0 +1,7 @@
+package com.khoinguyen.core.exception;
+
+public class ChangeTokenExpiredException extends RuntimeException {
+    public ChangeTokenExpiredException(String message) {
+        super(message);
+    }
+}
@@ -1,7 +1,12 @@
 package com.khoinguyen.core.exception;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.ConstraintViolationException;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -15,13 +20,20 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.HttpStatus.GONE;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.PRECONDITION_FAILED;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 
 @RestControllerAdvice
 @Slf4j
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
 
-    @ExceptionHandler({ConstraintViolationException.class, MethodArgumentNotValidException.class})
+    private final MeterRegistry meterRegistry;
+
+    @ExceptionHandler({ConstraintViolationException.class, MethodArgumentNotValidException.class, InvalidRequestException.class})
     @ResponseStatus(BAD_REQUEST)
     public ErrorResponse handleValidationException(Exception e, WebRequest request) {
         ErrorResponse errorResponse = new ErrorResponse();
@@ -50,6 +62,63 @@ public class GlobalExceptionHandler {
             errorResponse.setMessage(message);
         }
 
+        meterRegistry.counter("user.request.invalid", "error", errorResponse.getError()).increment();
+        return errorResponse;
+    }
+
+    @ExceptionHandler(QueueFullException.class)
+    @ResponseStatus(SERVICE_UNAVAILABLE)
+    public ErrorResponse handleQueueFullException(QueueFullException e, WebRequest request, HttpServletResponse response) {
+        // clients should back off instead of retrying right away
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.setTimestamp(new Date());
+        errorResponse.setStatus(SERVICE_UNAVAILABLE.value());
+        errorResponse.setPath(request.getDescription(false).replace("uri=", ""));
+        errorResponse.setError(SERVICE_UNAVAILABLE.getReasonPhrase());
+        errorResponse.setMessage(e.getMessage());
+        return errorResponse;
+    }
+
+    // the If-Match version is stale: the client has to GET the user again before writing
+    @ExceptionHandler(PreconditionFailedException.class)
+    @ResponseStatus(PRECONDITION_FAILED)
+    public ErrorResponse handlePreconditionFailedException(PreconditionFailedException e, WebRequest request) {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.setTimestamp(new Date());
+        errorResponse.setStatus(PRECONDITION_FAILED.value());
+        errorResponse.setPath(request.getDescription(false).replace("uri=", ""));
+        errorResponse.setError(PRECONDITION_FAILED.getReasonPhrase());
+        errorResponse.setMessage(e.getMessage());
+        return errorResponse;
+    }
+
+    // concurrent writers kept winning the race after the service's retries
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(CONFLICT)
+    public ErrorResponse handleOptimisticLockingFailureException(OptimisticLockingFailureException e, WebRequest request) {
+        log.warn("Write conflict, {}", e.getMessage());
+
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.setTimestamp(new Date());
+        errorResponse.setStatus(CONFLICT.value());
+        errorResponse.setPath(request.getDescription(false).replace("uri=", ""));
+        errorResponse.setError(CONFLICT.getReasonPhrase());
+        errorResponse.setMessage("Resource was modified concurrently, retry the request");
+        return errorResponse;
+    }
+
+    // the change feed no longer has the changes after the consumer's token: it has to resync from a new one
+    @ExceptionHandler(ChangeTokenExpiredException.class)
+    @ResponseStatus(GONE)
+    public ErrorResponse handleChangeTokenExpiredException(ChangeTokenExpiredException e, WebRequest request) {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.setTimestamp(new Date());
+        errorResponse.setStatus(GONE.value());
+        errorResponse.setPath(request.getDescription(false).replace("uri=", ""));
+        errorResponse.setError(GONE.getReasonPhrase());
+        errorResponse.setMessage(e.getMessage());
         return errorResponse;
     }
 
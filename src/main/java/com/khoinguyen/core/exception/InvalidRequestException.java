@@ -0,0 +1,15 @@
+package com.khoinguyen.core.exception;
+
+/**
+ * A request parameter or header the client got wrong (cursor, sort, change token, If-Match, patch), reported as 400.
+ * Other IllegalArgumentExceptions are bugs and stay 500.
+ */
+public class InvalidRequestException extends RuntimeException {
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+
+    public InvalidRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
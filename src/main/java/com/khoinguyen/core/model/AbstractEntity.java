@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.util.Date;
@@ -13,8 +14,10 @@ import java.util.Date;
 @MappedSuperclass
 public abstract class AbstractEntity {
 
+    // pooled sequence rather than IDENTITY, so the inserts of a user and its addresses can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "pooled-sequence")
+    @GenericGenerator(name = "pooled-sequence", type = PooledSequenceGenerator.class)
     @Column(name = "id")
     private Long id;
 
@@ -27,4 +30,9 @@ public abstract class AbstractEntity {
     @UpdateTimestamp
     @Temporal(TemporalType.TIMESTAMP)
     private Date updatedAt;
+
+    // optimistic lock: every UPDATE checks and increments it, bulk SQL updates bump it as well
+    @Version
+    @Column(name = "version")
+    private Long version;
 }
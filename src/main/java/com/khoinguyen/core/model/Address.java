@@ -2,6 +2,7 @@ package com.khoinguyen.core.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 @Getter
 @Setter
@@ -10,6 +11,7 @@ import lombok.*;
 @Builder
 @Entity(name = "Address")
 @Table(name = "tbl_address")
+@DynamicUpdate
 public class Address extends AbstractEntity {
 
     @Column(name = "apartment_number")
@@ -33,7 +35,7 @@ public class Address extends AbstractEntity {
     @Column(name = "country")
     private String country;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
@@ -0,0 +1,41 @@
+package com.khoinguyen.core.model;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Ids from the table's own {@code <table>_id_seq} (the sequence behind the former identity column), with the
+ * pooled-lo optimizer: each nextval returns the low end of a block of app.id.allocation-size ids that this
+ * instance hands out in memory. Other writers (the bulk import, the reactive API, plain SQL inserts) keep using
+ * nextval through the column default and simply consume a whole block each.
+ * <p>
+ * The sequence's INCREMENT BY must equal the allocation size (see V5__pooled_id_sequences.sql); Hibernate checks
+ * this at startup and refuses to start otherwise.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String ALLOCATION_SIZE = "app.id.allocation-size";
+
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        int allocationSize = ConfigurationHelper.getInt(ALLOCATION_SIZE,
+                serviceRegistry.requireService(ConfigurationService.class).getSettings(), DEFAULT_ALLOCATION_SIZE);
+
+        Properties pooled = new Properties();
+        pooled.putAll(parameters);
+        pooled.setProperty(SEQUENCE_PARAM, parameters.getProperty(PersistentIdentifierGenerator.TABLE) + "_id_seq");
+        pooled.setProperty(INCREMENT_PARAM, Integer.toString(allocationSize));
+        pooled.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, pooled, serviceRegistry);
+    }
+}
@@ -5,6 +5,7 @@ import com.khoinguyen.core.util.UserStatus;
 import com.khoinguyen.core.util.UserType;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
@@ -19,6 +20,7 @@ import java.util.Set;
 @Builder
 @Entity(name = "User")
 @Table(name = "tbl_user")
+@DynamicUpdate
 public class User extends AbstractEntity {
 
     @Column(name = "first_name")
@@ -58,7 +60,7 @@ public class User extends AbstractEntity {
     @Column(name = "status")
     private UserStatus status;
 
-    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER, mappedBy = "user")
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY, mappedBy = "user")
     private Set<Address> addresses = new HashSet<>();
 
     public void saveAddress(Address address) {
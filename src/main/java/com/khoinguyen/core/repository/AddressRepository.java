@@ -0,0 +1,14 @@
+package com.khoinguyen.core.repository;
+
+import com.khoinguyen.core.model.Address;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AddressRepository extends JpaRepository<Address, Long> {
+
+    List<Address> findByUserIdIn(Collection<Long> userIds);
+}
@@ -0,0 +1,97 @@
+package com.khoinguyen.core.repository;
+
+import com.khoinguyen.core.exception.InvalidRequestException;
+import com.khoinguyen.core.model.User;
+import org.springframework.data.domain.Sort;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Opaque continuation token for keyset (seek) pagination.
+ * <p>
+ * The token carries the sort specification it was issued for plus the sort column values of the
+ * last row returned, so the next page can be fetched with a {@code WHERE (col, id) > (?, ?)} seek
+ * instead of an OFFSET scan.
+ */
+public final class KeysetCursor {
+
+    private static final String NULL_VALUE = "n";
+    private static final String VALUE_PREFIX = "v";
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * Appends {@code id} as the final tie-breaker so the ordering is total. It takes the direction of the last sort
+     * column, so a single-column sort stays one direction: a row comparison and a (column, id) index, read forwards
+     * or backwards, serve it.
+     */
+    public static List<Sort.Order> withTieBreaker(List<Sort.Order> orders) {
+        List<Sort.Order> result = new ArrayList<>();
+        for (Sort.Order order : orders) {
+            UserSortColumn.of(order.getProperty());
+            result.add(order);
+            if (UserSortColumn.ID.getAttribute().equals(order.getProperty())) {
+                return result;
+            }
+        }
+        Sort.Direction direction = result.isEmpty() ? Sort.Direction.ASC : result.get(result.size() - 1).getDirection();
+        result.add(Sort.Order.by(UserSortColumn.ID.getAttribute()).with(direction));
+        return result;
+    }
+
+    public static String encode(List<Sort.Order> orders, User last) {
+        StringBuilder token = new StringBuilder(signature(orders));
+        for (Sort.Order order : orders) {
+            String value = UserSortColumn.of(order.getProperty()).format(last);
+            token.append('\n').append(value == null
+                    ? NULL_VALUE
+                    : VALUE_PREFIX + URLEncoder.encode(value, StandardCharsets.UTF_8));
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(token.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static List<Object> decode(List<Sort.Order> orders, String cursor) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\n", -1);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid cursor", e);
+        }
+
+        if (parts.length != orders.size() + 1 || !parts[0].equals(signature(orders))) {
+            throw new InvalidRequestException("Cursor does not match sortBy");
+        }
+
+        List<Object> values = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            String part = parts[i + 1];
+            UserSortColumn column = UserSortColumn.of(orders.get(i).getProperty());
+            try {
+                if (NULL_VALUE.equals(part)) {
+                    values.add(null);
+                } else if (part.startsWith(VALUE_PREFIX)) {
+                    values.add(column.parse(URLDecoder.decode(part.substring(1), StandardCharsets.UTF_8)));
+                } else {
+                    throw new InvalidRequestException("Invalid cursor");
+                }
+            } catch (IllegalArgumentException e) {
+                throw new InvalidRequestException("Invalid cursor", e);
+            }
+        }
+        return values;
+    }
+
+    private static String signature(List<Sort.Order> orders) {
+        return orders.stream()
+                .map(o -> o.getProperty() + ":" + o.getDirection())
+                .collect(Collectors.joining(","));
+    }
+}
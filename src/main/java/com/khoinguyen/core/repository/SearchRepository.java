@@ -1,83 +1,302 @@
 package com.khoinguyen.core.repository;
 
+import com.khoinguyen.core.dto.request.UserFilter;
 import com.khoinguyen.core.dto.response.PageResponse;
+import com.khoinguyen.core.dto.response.UserDetailResponse;
+import com.khoinguyen.core.exception.InvalidRequestException;
 import com.khoinguyen.core.model.User;
+import com.khoinguyen.core.util.CountMode;
+import com.khoinguyen.core.util.SearchEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.Query;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.hibernate.query.sqm.internal.SqmCriteriaNodeBuilder;
+import org.hibernate.query.sqm.tree.expression.SqmExpression;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Component
+@RequiredArgsConstructor
 public class SearchRepository {
       @PersistenceContext
       private EntityManager entityManager;
 
-    public PageResponse<?> getAllUsersWithSortByMultipleColumnAndSearch(int pageNo, int pageSize, String search, String sortBy) {
+      private final UserCountEstimator countEstimator;
 
-        StringBuilder sqlQuery = new StringBuilder("select new com.khoinguyen.core.dto.response.UserDetailResponse(u.id, u.firstName, u.lastName) from User u where 1=1 ");
+      private final UserSearchIndex searchIndex;
 
-        if(StringUtils.hasText(search)){
-            sqlQuery.append(" or lower(u.firstName) like lower(:firstName) ");
-            sqlQuery.append(" or lower(u.lastName) like lower(:lastName) ");
-            sqlQuery.append(" or lower(u.email) like lower(:email) ");
-        }
+      private final MeterRegistry meterRegistry;
 
-        if(StringUtils.hasText(sortBy)){
-            Pattern pattern = Pattern.compile("(\\w+?)(:)(.*)");
-            Matcher matcher = pattern.matcher(sortBy);
-            if(matcher.find()) {
-                sqlQuery.append(String.format("order by u.%s %s", matcher.group(1), matcher.group(3)));
-            }
+      // by "engine:query", a handful of timers looked up on every query
+      private final Map<String, Timer> timers = new ConcurrentHashMap<>();
 
-        }
+      @Value("${app.search.engine:like}")
+      private SearchEngine engine;
 
-        Query selectQuery = entityManager.createQuery(sqlQuery.toString());
-        selectQuery.setFirstResult(pageNo);
-        selectQuery.setMaxResults(pageSize);
+    private static final Pattern SORT_PATTERN = Pattern.compile("(\\w+?)(:)(.*)");
 
-        if(StringUtils.hasText(search)){
-            selectQuery.setParameter("firstName", String.format("%%%s%%", search));
-            selectQuery.setParameter("lastName", String.format("%%%s%%", search));
-            selectQuery.setParameter("email", String.format("%%%s%%", search));
-        }
+    /**
+     * Filtered, sorted page of users. {@code pageNo} is zero-based. The LIKE and TRIGRAM engines run the same
+     * Criteria query (the trigram indexes serve its LIKE predicates); TRIGRAM additionally ranks by similarity
+     * when no sortBy is given, and MEMORY narrows the query to the candidates of {@link UserSearchIndex}.
+     */
+    public PageResponse<?> getAllUsersWithSortByMultipleColumnAndSearch(int pageNo, int pageSize, UserFilter filter, String sortBy, CountMode count) {
+        Specification<User> specification = UserSpecifications.matching(filter);
+        String engineTag = engine.name().toLowerCase(Locale.ROOT);
 
-        List<User> users = selectQuery.getResultList();
+        if (engine == SearchEngine.MEMORY && filter.hasSearch()) {
+            int[] candidates = searchIndex.candidates(filter.getSearch());
+            if (candidates == null) {
+                // the index cannot answer short terms or very common trigrams, the GIN indexes can
+                engineTag = "trigram";
+            } else if (candidates.length == 0) {
+                return toPageResponse(pageNo, pageSize, List.of(), count, true, () -> 0L);
+            } else {
+                specification = specification.and(UserSpecifications.idIn(Arrays.stream(candidates).asLongStream().boxed().toList()));
+            }
+        }
+        String rankBy = engine == SearchEngine.TRIGRAM && filter.hasSearch() && !StringUtils.hasText(sortBy)
+                ? filter.getSearch().toLowerCase(Locale.ROOT) : null;
 
-        //query ra list user
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserDetailResponse> select = cb.createQuery(UserDetailResponse.class);
+        Root<User> root = select.from(User.class);
+        select.select(cb.construct(UserDetailResponse.class, root.get("id"), root.get("firstName"), root.get("lastName"), root.get("version")));
+        Predicate predicate = specification.toPredicate(root, select, cb);
+        if (predicate != null) {
+            select.where(predicate);
+        }
+        select.orderBy(rankBy != null ? bySimilarity(cb, root) : orderBy(cb, root, sortBy));
 
-        //query count record
-        StringBuilder sqlCountQuery = new StringBuilder("select count(u) from User u where 1=1 ");
-        if(StringUtils.hasText(search)){
-            sqlCountQuery.append(" or lower(u.firstName) like lower(?1) ");
-            sqlCountQuery.append(" or lower(u.lastName) like lower(?2) ");
-            sqlCountQuery.append(" or lower(u.email) like lower(?3) ");
+        TypedQuery<UserDetailResponse> selectQuery = entityManager.createQuery(select)
+                .setFirstResult(pageNo * pageSize)
+                // without a count query one extra row tells whether there is a next page
+                .setMaxResults(count == CountMode.EXACT ? pageSize : pageSize + 1);
+        if (rankBy != null) {
+            selectQuery.setParameter("term", rankBy);
         }
+        List<UserDetailResponse> users = timed(engineTag, "select", selectQuery::getResultList);
 
-        Query selectCountQuery = entityManager.createQuery(sqlCountQuery.toString());
-        if(StringUtils.hasText(search)){
-            selectCountQuery.setParameter(1, String.format("%%%s%%", search));
-            selectCountQuery.setParameter(2, String.format("%%%s%%", search));
-            selectCountQuery.setParameter(3, String.format("%%%s%%", search));
+        Specification<User> countSpecification = specification;
+        String countTag = engineTag;
+        return toPageResponse(pageNo, pageSize, users, count, !filter.isEmpty(), () -> {
+            CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+            Root<User> countRoot = countQuery.from(User.class);
+            countQuery.select(cb.count(countRoot));
+            Predicate countPredicate = countSpecification.toPredicate(countRoot, countQuery, cb);
+            if (countPredicate != null) {
+                countQuery.where(countPredicate);
+            }
+            return timed(countTag, "count", entityManager.createQuery(countQuery)::getSingleResult);
+        });
+    }
+
+    /**
+     * Whitelisted "field:asc|desc" (see {@link UserSortColumn}) followed by id, so that pages are stable.
+     */
+    private static List<Order> orderBy(CriteriaBuilder cb, Root<User> root, String sortBy) {
+        List<Order> orders = new ArrayList<>();
+        if (StringUtils.hasText(sortBy)) {
+            Matcher matcher = SORT_PATTERN.matcher(sortBy);
+            if (matcher.find()) {
+                String direction = matcher.group(3);
+                if (!direction.equalsIgnoreCase("asc") && !direction.equalsIgnoreCase("desc")) {
+                    throw new InvalidRequestException("Unsupported sort direction: " + direction);
+                }
+                UserSortColumn column = UserSortColumn.of(matcher.group(1));
+                if (column == UserSortColumn.ID) {
+                    return List.of(direction.equalsIgnoreCase("asc") ? cb.asc(root.get("id")) : cb.desc(root.get("id")));
+                }
+                Path<?> path = root.get(column.getAttribute());
+                orders.add(direction.equalsIgnoreCase("asc") ? cb.asc(path) : cb.desc(path));
+            }
         }
+        orders.add(cb.asc(root.get("id")));
+        return orders;
+    }
 
-        Long totalElements = (Long) selectCountQuery.getSingleResult();
-        long totalPages = (totalElements + pageSize - 1) / pageSize;
+    private static List<Order> bySimilarity(CriteriaBuilder cb, Root<User> root) {
+        Expression<String> value = cb.parameter(String.class, "term");
+        Expression<Double> similarity = cb.function("greatest", Double.class,
+                cb.function("similarity", Double.class, cb.lower(root.get("firstName")), value),
+                cb.function("similarity", Double.class, cb.lower(root.get("lastName")), value),
+                cb.function("similarity", Double.class, cb.lower(root.get("email")), value));
+        return List.of(cb.desc(similarity), cb.asc(root.get("id")));
+    }
 
-        Page<?> page = new PageImpl<User>(users, PageRequest.of(pageNo, pageSize), totalElements);
+    private PageResponse<?> toPageResponse(int pageNo, int pageSize, List<?> rows, CountMode count, boolean filtered, LongSupplier exactCount) {
+        if (count == CountMode.EXACT) {
+            return PageResponse.builder()
+                    .pageNo(pageNo)
+                    .pageSize(pageSize)
+                    .totalPage((int) ((exactCount.getAsLong() + pageSize - 1) / pageSize))
+                    .items(rows)
+                    .build();
+        }
+
+        boolean hasNext = rows.size() > pageSize;
+        // the planner estimate covers the whole table, so it only stands in for unfiltered listings
+        OptionalLong estimate = count == CountMode.APPROXIMATE && !filtered ? countEstimator.estimate() : OptionalLong.empty();
+        Integer totalPage = estimate.isPresent() ? (int) ((estimate.getAsLong() + pageSize - 1) / pageSize) : null;
 
         return PageResponse.builder()
                 .pageNo(pageNo)
                 .pageSize(pageSize)
-                .totalPage(page.getTotalPages())
-                .items(page.stream().toList())
+                .totalPage(totalPage)
+                .hasNext(hasNext)
+                .items(hasNext ? rows.subList(0, pageSize) : rows)
                 .build();
     }
+
+    private <T> T timed(String engine, String query, Supplier<T> execution) {
+        return timers.computeIfAbsent(engine + ":" + query, key -> Timer.builder("user.search.query")
+                        .description("SearchRepository query execution")
+                        .tag("engine", engine)
+                        .tag("query", query)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(execution);
+    }
+
+    public static String containsPattern(String search) {
+        String escaped = search.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+
+    /**
+     * Keyset page: rows strictly after {@code after} in the given ordering, without an OFFSET scan.
+     * NULLs sort as the greatest value in both directions, matching the Postgres default.
+     */
+    public List<User> getUsersAfterCursor(List<Sort.Order> orders, List<Object> after, int limit) {
+        if (after == null) {
+            return selectInOrder(orders, null, limit);
+        }
+        if (!isRowSeekable(orders, after)) {
+            return selectInOrder(orders, (cb, root) -> seekPredicate(cb, root, orders, after), limit);
+        }
+        List<User> users = selectInOrder(orders, (cb, root) -> rowAfter(cb, root, orders, after), limit);
+        Sort.Order first = orders.get(0);
+        if (users.size() < limit && first.isAscending() && orders.size() > 1) {
+            // the rows with a NULL first column, which sort after all the others and no row comparison returns
+            List<User> nulls = selectInOrder(orders, (cb, root) -> cb.isNull(root.get(first.getProperty())), limit - users.size());
+            users = new ArrayList<>(users);
+            users.addAll(nulls);
+        }
+        return users;
+    }
+
+    private List<User> selectInOrder(List<Sort.Order> orders, BiFunction<HibernateCriteriaBuilder, Root<User>, Predicate> where, int limit) {
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) entityManager.getCriteriaBuilder();
+        CriteriaQuery<User> query = cb.createQuery(User.class);
+        Root<User> root = query.from(User.class);
+
+        if (where != null) {
+            query.where(where.apply(cb, root));
+        }
+
+        List<Order> orderBy = new ArrayList<>();
+        for (Sort.Order order : orders) {
+            Path<?> path = root.get(order.getProperty());
+            orderBy.add(order.isAscending() ? cb.asc(path, false) : cb.desc(path, true));
+        }
+        query.orderBy(orderBy);
+
+        return timed("cursor", "select", entityManager.createQuery(query).setMaxResults(limit)::getResultList);
+    }
+
+    /**
+     * Whether {@link #rowAfter} can replace {@link #seekPredicate}: one direction throughout and a cursor without
+     * NULLs. A row comparison stops at the first unequal column and is NULL (false) when either side is, so it
+     * skips the rows with a NULL there. Descending, those sort first and are already behind a non-null cursor.
+     * Ascending, they sort last: only (column, id) qualifies, id is never NULL, and the rows with a NULL column are
+     * read after the others.
+     */
+    private static boolean isRowSeekable(List<Sort.Order> orders, List<Object> after) {
+        boolean ascending = orders.get(0).isAscending();
+        for (int i = 0; i < orders.size(); i++) {
+            Sort.Order order = orders.get(i);
+            if (order.isAscending() != ascending || after.get(i) == null) {
+                return false;
+            }
+            if (ascending && i > 0 && !order.getProperty().equals(UserSortColumn.ID.getAttribute())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * (sort columns) > (cursor), or < when descending: a range of a (sort column, id) index, where the expanded
+     * {@link #seekPredicate} is an OR that Postgres can only filter with.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate rowAfter(HibernateCriteriaBuilder cb, Root<User> root, List<Sort.Order> orders, List<Object> values) {
+        SqmCriteriaNodeBuilder nodes = (SqmCriteriaNodeBuilder) cb;
+        List<SqmExpression<?>> columns = new ArrayList<>();
+        List<SqmExpression<?>> cursor = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            SqmExpression column = (SqmExpression<?>) root.get(orders.get(i).getProperty());
+            columns.add(column);
+            // bound with the column's type: an untyped value would take the tuple's, which cannot be bound
+            cursor.add(nodes.value(values.get(i), column));
+        }
+        Expression row = nodes.tuple(Object[].class, columns);
+        Expression after = nodes.tuple(Object[].class, cursor);
+        return orders.get(0).isAscending() ? cb.greaterThan(row, after) : cb.lessThan(row, after);
+    }
+
+    private Predicate seekPredicate(CriteriaBuilder cb, Root<User> root, List<Sort.Order> orders, List<Object> values) {
+        List<Predicate> disjuncts = new ArrayList<>();
+        List<Predicate> equalities = new ArrayList<>();
+
+        for (int i = 0; i < orders.size(); i++) {
+            Path<Comparable<Object>> path = root.get(orders.get(i).getProperty());
+            Object value = values.get(i);
+
+            Predicate after = isAfter(cb, path, value, orders.get(i).isAscending());
+            if (after != null) {
+                List<Predicate> conjuncts = new ArrayList<>(equalities);
+                conjuncts.add(after);
+                disjuncts.add(cb.and(conjuncts.toArray(Predicate[]::new)));
+            }
+            equalities.add(value == null ? cb.isNull(path) : cb.equal(path, value));
+        }
+
+        return cb.or(disjuncts.toArray(Predicate[]::new));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Predicate isAfter(CriteriaBuilder cb, Path<Comparable<Object>> path, Object value, boolean ascending) {
+        if (ascending) {
+            return value == null ? null : cb.or(cb.greaterThan(path, (Comparable<Object>) value), cb.isNull(path));
+        }
+        return value == null ? cb.isNotNull(path) : cb.lessThan(path, (Comparable<Object>) value);
+    }
 }
@@ -0,0 +1,102 @@
+package com.khoinguyen.core.repository;
+
+import com.khoinguyen.core.dto.response.UserChangeResponse;
+import com.khoinguyen.core.util.UserChangeType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The user change outbox (tbl_user_change, see V8). Changes are appended by the write paths inside their own
+ * transaction, after the user row is written, so a later change of the same user always gets a larger id; the
+ * methods below the appends are for {@link com.khoinguyen.core.service.impl.UserChangeRelay} and the change feed.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserChangeRepository {
+
+    // "userchng": the advisory lock that keeps one relay at a time across all instances
+    static final long RELAY_LOCK = 0x75736572_63686e67L;
+
+    private static final String APPEND = "insert into tbl_user_change (user_id, version, type) values (?, ?, ?)";
+
+    private static final String APPEND_CURRENT_VERSION = "insert into tbl_user_change (user_id, version, type) " +
+            "select id, version, ? from tbl_user where id = any(?) order by id";
+
+    // the next unnumbered changes in id order, numbered on from the last position
+    private static final String NUMBER = "update tbl_user_change c set position = n.position " +
+            "from (select id, (select coalesce(max(position), 0) from tbl_user_change) + row_number() over (order by id) as position " +
+            "from tbl_user_change where position is null order by id limit ?) n where c.id = n.id";
+
+    private static final String FIND_AFTER = "select position, user_id, version, type, created_at from tbl_user_change " +
+            "where position > ? order by position limit ?";
+
+    // a prefix of the published changes, always keeping the newest old one so the feed can tell a token was purged;
+    // the first young change is found from the oldest end of the position index
+    private static final String PURGE = "delete from tbl_user_change where position < least(?, " +
+            "(select position - 1 from tbl_user_change where position > 0 and created_at >= ? order by position limit 1))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void append(long userId, Long version, UserChangeType type) {
+        jdbcTemplate.update(APPEND, userId, version, type.name());
+    }
+
+    /**
+     * Appends a change for each of the users, at the version they have in this transaction.
+     */
+    public int appendCurrentVersion(Collection<Long> userIds, UserChangeType type) {
+        return jdbcTemplate.update(APPEND_CURRENT_VERSION, ps -> {
+            ps.setString(1, type.name());
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", userIds.toArray()));
+        });
+    }
+
+    /**
+     * Takes the relay lock until the end of the current transaction; false when another relay holds it.
+     */
+    public boolean tryLockRelay() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("select pg_try_advisory_xact_lock(?)", Boolean.class, RELAY_LOCK));
+    }
+
+    /**
+     * Gives up to {@code limit} committed changes a position; needs the relay lock. Returns how many were numbered.
+     */
+    public int number(int limit) {
+        return jdbcTemplate.update(NUMBER, limit);
+    }
+
+    public long sinkPosition() {
+        return jdbcTemplate.queryForObject("select position from tbl_user_change_cursor where name = 'sink'", Long.class);
+    }
+
+    public void setSinkPosition(long position) {
+        jdbcTemplate.update("update tbl_user_change_cursor set position = ? where name = 'sink'", position);
+    }
+
+    public long latestPosition() {
+        return jdbcTemplate.queryForObject("select coalesce(max(position), 0) from tbl_user_change", Long.class);
+    }
+
+    public List<UserChangeResponse> findAfter(long position, int limit) {
+        return jdbcTemplate.query(FIND_AFTER, (rs, rowNum) -> UserChangeResponse.builder()
+                .position(rs.getLong("position"))
+                .userId(rs.getLong("user_id"))
+                .version(rs.getObject("version", Long.class))
+                .type(UserChangeType.valueOf(rs.getString("type")))
+                .occurredAt(rs.getTimestamp("created_at"))
+                .build(), position, limit);
+    }
+
+    /**
+     * Deletes changes created before {@code before} up to {@code publishedPosition}. Returns the number deleted.
+     */
+    public int purge(long publishedPosition, Instant before) {
+        return jdbcTemplate.update(PURGE, publishedPosition, Timestamp.from(before));
+    }
+}
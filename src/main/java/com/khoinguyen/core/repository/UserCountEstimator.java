@@ -0,0 +1,56 @@
+package com.khoinguyen.core.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Cheap row count of tbl_user read from the Postgres planner statistics ({@code pg_class.reltuples}),
+ * cached for a short TTL. Without statistics the table is counted only up to app.pagination.exact-count-cap
+ * rows; a larger one has no count at all.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserCountEstimator {
+
+    private final UserRepository userRepository;
+
+    @Value("${app.pagination.approximate-count-ttl:30s}")
+    private Duration ttl;
+
+    @Value("${app.pagination.exact-count-cap:100000}")
+    private long exactCountCap;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * The estimated row count, or empty when there are no statistics yet and the table has more than
+     * app.pagination.exact-count-cap rows.
+     */
+    public OptionalLong estimate() {
+        Snapshot current = snapshot;
+        long now = System.nanoTime();
+        if (current == null || now - current.expiresAt() > 0) {
+            current = new Snapshot(load(), now + ttl.toNanos());
+            snapshot = current;
+        }
+        return current.count();
+    }
+
+    private OptionalLong load() {
+        long estimate = userRepository.estimateCount();
+        if (estimate >= 0) {
+            return OptionalLong.of(estimate);
+        }
+        // reltuples is -1 until the table has been vacuumed or analyzed; counting a big table would cost what the
+        // estimate is there to save
+        long counted = userRepository.countUpTo(exactCountCap + 1);
+        return counted <= exactCountCap ? OptionalLong.of(counted) : OptionalLong.empty();
+    }
+
+    private record Snapshot(OptionalLong count, long expiresAt) {
+    }
+}
@@ -0,0 +1,35 @@
+package com.khoinguyen.core.repository;
+
+import com.khoinguyen.core.util.Gender;
+import com.khoinguyen.core.util.UserStatus;
+import com.khoinguyen.core.util.UserType;
+
+import java.util.Date;
+
+/**
+ * Closed projection of the tbl_user columns shown in {@link com.khoinguyen.core.dto.response.UserDetailResponse},
+ * so list and detail queries select neither the password nor the addresses.
+ */
+public interface UserDetailProjection {
+    Long getId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    String getEmail();
+
+    String getPhone();
+
+    Date getDateOfBirth();
+
+    Gender getGender();
+
+    String getUsername();
+
+    UserType getType();
+
+    UserStatus getStatus();
+
+    Long getVersion();
+}
@@ -0,0 +1,72 @@
+package com.khoinguyen.core.repository;
+
+import com.khoinguyen.core.dto.request.UserFilter;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.util.StringUtils;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * {@link UserSpecifications#matching} as plain SQL over {@code tbl_user u}, for the JDBC paths that stream rather
+ * than page (the export). Predicate for predicate the same as the Criteria ones, in the same order: a change to
+ * either has to be made to both (SearchRepositoryTest runs filters through both and compares).
+ */
+final class UserFilterSql {
+
+    private UserFilterSql() {
+    }
+
+    /**
+     * The where clause of {@code filter} (empty when it has no criteria); its parameters are added to {@code args}.
+     */
+    static String where(UserFilter filter, List<Object> args) {
+        StringBuilder sql = new StringBuilder();
+        if (filter.hasSearch()) {
+            String pattern = SearchRepository.containsPattern(filter.getSearch().toLowerCase(Locale.ROOT));
+            and(sql, "(lower(u.first_name) like ? escape '\\' or lower(u.last_name) like ? escape '\\' or lower(u.email) like ? escape '\\')");
+            args.addAll(List.of(pattern, pattern, pattern));
+        }
+        // Types.OTHER lets Postgres cast the text to the column's enum type
+        if (filter.getStatus() != null) {
+            and(sql, "u.status = ?");
+            args.add(new SqlParameterValue(Types.OTHER, filter.getStatus().name()));
+        }
+        if (filter.getType() != null) {
+            and(sql, "u.type = ?");
+            args.add(new SqlParameterValue(Types.OTHER, filter.getType().name()));
+        }
+        if (filter.getGender() != null) {
+            and(sql, "u.gender = ?");
+            args.add(new SqlParameterValue(Types.OTHER, filter.getGender().name()));
+        }
+        if (filter.getDateOfBirthFrom() != null) {
+            and(sql, "u.date_of_birth >= ?");
+            args.add(Date.valueOf(filter.getDateOfBirthFrom()));
+        }
+        if (filter.getDateOfBirthTo() != null) {
+            and(sql, "u.date_of_birth <= ?");
+            args.add(Date.valueOf(filter.getDateOfBirthTo()));
+        }
+        if (filter.getCreatedFrom() != null) {
+            and(sql, "u.created_at >= ?");
+            args.add(Timestamp.valueOf(filter.getCreatedFrom().atStartOfDay()));
+        }
+        if (filter.getCreatedTo() != null) {
+            and(sql, "u.created_at < ?");
+            args.add(Timestamp.valueOf(filter.getCreatedTo().plusDays(1).atStartOfDay()));
+        }
+        if (StringUtils.hasText(filter.getCity())) {
+            and(sql, "exists (select 1 from tbl_address ca where ca.user_id = u.id and lower(ca.city) = ?)");
+            args.add(filter.getCity().trim().toLowerCase(Locale.ROOT));
+        }
+        return sql.toString();
+    }
+
+    private static void and(StringBuilder sql, String predicate) {
+        sql.append(sql.isEmpty() ? " where " : " and ").append(predicate);
+    }
+}
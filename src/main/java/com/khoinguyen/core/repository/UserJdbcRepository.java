@@ -0,0 +1,134 @@
+package com.khoinguyen.core.repository;
+
+import com.khoinguyen.core.dto.request.UserFilter;
+import com.khoinguyen.core.model.Address;
+import com.khoinguyen.core.model.User;
+import com.khoinguyen.core.util.UserStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plain JDBC access to tbl_user / tbl_address for bulk paths where going through the persistence context
+ * costs more than it buys.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserJdbcRepository {
+
+    private static final String INSERT_USER = "insert into tbl_user (id, first_name, last_name, date_of_birth, gender, phone, email, " +
+            "username, password, type, status, created_at, updated_at) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, now(), now())";
+
+    private static final String INSERT_ADDRESS = "insert into tbl_address (id, apartment_number, floor, building, street_number, street, " +
+            "city, country, address_type, user_id, created_at, updated_at) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, now(), now())";
+
+    // the outbox rows (see UserChangeRepository) are written by the same statement, so they commit with the update
+    private static final String UPDATE_STATUS = "with updated as (update tbl_user set status = ?, updated_at = now(), version = version + 1 " +
+            "where id = any(?) returning id, version) insert into tbl_user_change (user_id, version, type) " +
+            "select id, version, 'STATUS_CHANGED' from updated order by id";
+
+    private static final String EXPORT_USER_COLUMNS = "select u.id as \"id\", u.first_name as \"firstName\", u.last_name as \"lastName\", " +
+            "u.email as \"email\", u.phone as \"phone\", u.date_of_birth as \"dateOfBirth\", u.gender as \"gender\", " +
+            "u.username as \"username\", u.type as \"type\", u.status as \"status\", u.created_at as \"createdAt\", u.updated_at as \"updatedAt\"";
+
+    private static final String EXPORT_ADDRESS_COLUMNS = ", a.id as \"addressId\", a.apartment_number as \"apartmentNumber\", a.floor as \"floor\", " +
+            "a.building as \"building\", a.street_number as \"streetNumber\", a.street as \"street\", a.city as \"city\", " +
+            "a.country as \"country\", a.address_type as \"addressType\"";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Reserves ids up front from the sequence backing the id column, so users and their addresses can be
+     * inserted in JDBC batches without reading generated keys back row by row. Like Hibernate's pooled-lo
+     * optimizer, each nextval is the low end of a block of INCREMENT BY ids.
+     */
+    public List<Long> nextIds(String table, int count) {
+        long increment = jdbcTemplate.queryForObject("select seqincrement from pg_sequence " +
+                "where seqrelid = cast(pg_get_serial_sequence(?, 'id') as regclass)", Long.class, table);
+        List<Long> blocks = jdbcTemplate.queryForList("select nextval(pg_get_serial_sequence(?, 'id')) from generate_series(1, ?)",
+                Long.class, table, (count + increment - 1) / increment);
+
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(blocks.get((int) (i / increment)) + i % increment);
+        }
+        return ids;
+    }
+
+    public void insertUsers(List<User> users, int batchSize) {
+        jdbcTemplate.batchUpdate(INSERT_USER, users, batchSize, (ps, user) -> {
+            ps.setLong(1, user.getId());
+            ps.setString(2, user.getFirstName());
+            ps.setString(3, user.getLastName());
+            ps.setDate(4, user.getDateOfBirth() == null ? null : new Date(user.getDateOfBirth().getTime()));
+            // Types.OTHER lets Postgres cast the text to the column's enum type
+            ps.setObject(5, user.getGender() == null ? null : user.getGender().name(), Types.OTHER);
+            ps.setString(6, user.getPhone());
+            ps.setString(7, user.getEmail());
+            ps.setString(8, user.getUsername());
+            ps.setString(9, user.getPassword());
+            ps.setObject(10, user.getType() == null ? null : user.getType().name(), Types.OTHER);
+            ps.setObject(11, user.getStatus() == null ? null : user.getStatus().name(), Types.OTHER);
+        });
+    }
+
+    public void insertAddresses(List<Address> addresses, int batchSize) {
+        jdbcTemplate.batchUpdate(INSERT_ADDRESS, addresses, batchSize, (ps, address) -> {
+            ps.setLong(1, address.getId());
+            ps.setString(2, address.getApartmentNumber());
+            ps.setString(3, address.getFloor());
+            ps.setString(4, address.getBuilding());
+            ps.setString(5, address.getStreetNumber());
+            ps.setString(6, address.getStreet());
+            ps.setString(7, address.getCity());
+            ps.setString(8, address.getCountry());
+            ps.setObject(9, address.getAddressType(), Types.INTEGER);
+            ps.setLong(10, address.getUser().getId());
+        });
+    }
+
+    /**
+     * One statement for the whole id list: the ids travel as a single bigint[] parameter, so every batch size
+     * shares the same prepared statement. Returns the number of rows updated.
+     */
+    public int updateStatus(List<Long> ids, UserStatus status) {
+        return jdbcTemplate.update(UPDATE_STATUS, ps -> {
+            ps.setObject(1, status.name(), Types.OTHER);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", ids.toArray()));
+        });
+    }
+
+    /**
+     * Streams users matching {@code filter} (the same criteria as the search endpoint, see {@link UserFilterSql}) in
+     * id order, optionally one row per address. Rows come through a forward-only cursor with {@code fetchSize} rows
+     * per round trip, so memory stays flat regardless of table size; must be called inside a transaction.
+     */
+    public void streamUsers(UserFilter filter, boolean includeAddresses, int fetchSize, RowCallbackHandler handler) {
+        StringBuilder sql = new StringBuilder(EXPORT_USER_COLUMNS);
+        if (includeAddresses) {
+            sql.append(EXPORT_ADDRESS_COLUMNS).append(" from tbl_user u left join tbl_address a on a.user_id = u.id");
+        } else {
+            sql.append(" from tbl_user u");
+        }
+
+        List<Object> args = new ArrayList<>();
+        sql.append(UserFilterSql.where(filter, args));
+        sql.append(includeAddresses ? " order by u.id, a.id" : " order by u.id");
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            new ArgumentPreparedStatementSetter(args.toArray()).setValues(ps);
+            return ps;
+        }, handler);
+    }
+}
@@ -1,9 +1,59 @@
 package com.khoinguyen.core.repository;
 
 import com.khoinguyen.core.model.User;
+import com.khoinguyen.core.util.UserStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+
+    Page<UserDetailProjection> findAllProjectedBy(Pageable pageable);
+
+    Slice<UserDetailProjection> findSliceProjectedBy(Pageable pageable);
+
+    Optional<UserDetailProjection> findProjectedById(Long id);
+
+    /**
+     * Version of the user alone, to revalidate a client's copy without loading the user.
+     */
+    @Query("select u.version from User u where u.id = :id")
+    Optional<Long> findVersionById(@Param("id") long id);
+
+    /**
+     * Flips the status column without loading the user and its addresses; returns the number of rows updated.
+     */
+    @Modifying
+    @Transactional
+    @Query("update User u set u.status = :status, u.updatedAt = current_timestamp, u.version = u.version + 1 where u.id = :id")
+    int updateStatus(@Param("id") long id, @Param("status") UserStatus status);
+
+    /**
+     * Same as {@link #updateStatus(long, UserStatus)}, but only while the user is still at the given version.
+     */
+    @Modifying
+    @Transactional
+    @Query("update User u set u.status = :status, u.updatedAt = current_timestamp, u.version = u.version + 1" +
+            " where u.id = :id and u.version = :version")
+    int updateStatus(@Param("id") long id, @Param("status") UserStatus status, @Param("version") long version);
+
+    // the table itself, or the sum over its partitions once it is partitioned (db/tooling/user_partitioning.sql);
+    // -1 while any is unanalyzed
+    @Query(value = "select cast(case when min(c.reltuples) < 0 then -1 else sum(c.reltuples) end as bigint) from pg_class c" +
+            " where (c.oid = cast('tbl_user' as regclass) and c.relkind <> 'p')" +
+            " or c.oid in (select i.inhrelid from pg_inherits i where i.inhparent = cast('tbl_user' as regclass))", nativeQuery = true)
+    long estimateCount();
+
+    // stops reading at limit rows
+    @Query(value = "select count(*) from (select 1 from tbl_user limit :limit) u", nativeQuery = true)
+    long countUpTo(@Param("limit") long limit);
 }
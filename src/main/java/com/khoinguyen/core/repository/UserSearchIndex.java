@@ -0,0 +1,378 @@
+package com.khoinguyen.core.repository;
+
+import com.khoinguyen.core.dto.response.UserChangeResponse;
+import com.khoinguyen.core.model.User;
+import com.khoinguyen.core.util.SearchEngine;
+import com.khoinguyen.core.util.UserChangeType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index from lower-cased trigrams of firstName, lastName and email (covering both the
+ * local-part and the domain) to user ids, used by the {@link SearchEngine#MEMORY} search engine.
+ * <p>
+ * Every instance holds its own index. Its writes update it right away; everything else (other instances, the
+ * bulk and reactive paths) reaches it through the change feed (tbl_user_change positions, handed out while
+ * app.outbox.relay.enabled), which the index follows every app.search.memory.follow-interval from where the
+ * startup rebuild began, adding the current fields of each changed user. Those adds keep the postings of the
+ * old fields, so an index that lags the feed may miss a user for up to the interval, and one that follows it
+ * may return extra candidates.
+ * <p>
+ * The index only narrows the search down to candidate ids: callers re-check the actual predicate against the
+ * database, which keeps results exact with stale entries. Posting lists are sorted {@code int[]} arrays; an id
+ * past the int range, or reaching {@code app.search.memory.max-postings}, disables the index and searches go
+ * back to the database.
+ */
+@Slf4j
+@Component
+public class UserSearchIndex implements DisposableBean {
+
+    private static final String FIND_DOCUMENTS = "select id, first_name, last_name, email from tbl_user where id in (:ids)";
+
+    private static final int FOLLOW_BATCH_SIZE = 1000;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private final DataSource dataSource;
+    private final UserChangeRepository userChangeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long maxPostings;
+    private final int maxCandidates;
+    private final Duration followInterval;
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-search-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long postingCount;
+    private volatile boolean ready;
+    private volatile boolean disabled;
+    // the last change feed position applied, only touched by rebuild() and follow()
+    private long followedPosition;
+
+    public UserSearchIndex(DataSource dataSource,
+                           UserChangeRepository userChangeRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.search.engine:like}") SearchEngine engine,
+                           @Value("${app.search.memory.max-postings:200000000}") long maxPostings,
+                           @Value("${app.search.memory.max-candidates:10000}") int maxCandidates,
+                           @Value("${app.search.memory.follow-interval:1s}") Duration followInterval) {
+        this.dataSource = dataSource;
+        this.userChangeRepository = userChangeRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = engine == SearchEngine.MEMORY;
+        this.maxPostings = maxPostings;
+        this.maxCandidates = maxCandidates;
+        this.followInterval = followInterval;
+    }
+
+    public record Document(long id, String firstName, String lastName, String email) {
+        public static Document of(User user) {
+            return new Document(user.getId(), user.getFirstName(), user.getLastName(), user.getEmail());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (enabled) {
+            maintenance.execute(this::rebuild);
+            maintenance.scheduleWithFixedDelay(this::followQuietly, followInterval.toMillis(), followInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Streams tbl_user with a forward-only cursor and indexes every row. Searches fall back to the database
+     * until the rebuild has finished.
+     */
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(10_000);
+
+        try {
+            // Postgres only streams with a cursor inside a transaction
+            transactionTemplate.executeWithoutResult(status -> {
+                // changes numbered from here on may have been missed by the scan, follow() applies them again
+                followedPosition = userChangeRepository.latestPosition();
+                jdbcTemplate.query("select id, first_name, last_name, email from tbl_user", rs -> {
+                    add(new Document(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+                });
+            });
+        } catch (RuntimeException e) {
+            log.error("User search index rebuild failed, searches fall back to the database", e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            postings.values().forEach(PostingList::trimToSize);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        ready = !disabled;
+        log.info("User search index rebuilt, ready={}, trigrams={}, postings={}, took={}ms",
+                ready, postings.size(), postingCount, System.currentTimeMillis() - started);
+    }
+
+    // an exception would cancel the schedule, so a failure ends the run and the next one retries
+    private void followQuietly() {
+        try {
+            follow();
+        } catch (RuntimeException e) {
+            log.warn("Following the user change feed failed, retrying on the next run", e);
+        }
+    }
+
+    /**
+     * Indexes the current fields of the users changed on the feed since the last call. Deletions are left to the
+     * database re-check.
+     */
+    public void follow() {
+        if (!ready) {
+            return;
+        }
+        NamedParameterJdbcTemplate jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        List<UserChangeResponse> changes;
+        do {
+            changes = userChangeRepository.findAfter(followedPosition, FOLLOW_BATCH_SIZE);
+            List<Long> userIds = changes.stream()
+                    .filter(change -> change.getType() != UserChangeType.DELETED)
+                    .map(UserChangeResponse::getUserId)
+                    .distinct()
+                    .toList();
+            if (!userIds.isEmpty()) {
+                jdbcTemplate.query(FIND_DOCUMENTS, Map.of("ids", userIds), rs -> {
+                    add(new Document(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+                });
+            }
+            if (!changes.isEmpty()) {
+                followedPosition = changes.get(changes.size() - 1).getPosition();
+            }
+        } while (changes.size() == FOLLOW_BATCH_SIZE);
+    }
+
+    public void add(Document document) {
+        if (!enabled || disabled) {
+            return;
+        }
+        if (document.id() > Integer.MAX_VALUE) {
+            disable("user id " + document.id() + " does not fit its int postings");
+            return;
+        }
+        int id = (int) document.id();
+        long[] grams = trigrams(document);
+
+        lock.writeLock().lock();
+        try {
+            for (long gram : grams) {
+                if (postings.computeIfAbsent(gram, g -> new PostingList()).add(id)) {
+                    postingCount++;
+                }
+            }
+            if (postingCount > maxPostings) {
+                disable("it exceeded " + maxPostings + " postings");
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Document document) {
+        if (!enabled || disabled || document.id() > Integer.MAX_VALUE) {
+            return;
+        }
+        int id = (int) document.id();
+        long[] grams = trigrams(document);
+
+        lock.writeLock().lock();
+        try {
+            for (long gram : grams) {
+                PostingList list = postings.get(gram);
+                if (list != null && list.remove(id)) {
+                    postingCount--;
+                    if (list.size == 0) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void replace(Document before, Document after) {
+        remove(before);
+        add(after);
+    }
+
+    /**
+     * Ids of users whose indexed fields contain every trigram of {@code term}, in ascending order, or
+     * {@code null} when the index cannot answer (not ready, term shorter than three characters, or more than
+     * {@code app.search.memory.max-candidates} candidates).
+     */
+    public int[] candidates(String term) {
+        if (!ready) {
+            return null;
+        }
+        long[] grams = trigrams(term.toLowerCase(Locale.ROOT));
+        if (grams.length == 0) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = new PostingList[grams.length];
+            for (int i = 0; i < grams.length; i++) {
+                lists[i] = postings.get(grams[i]);
+                if (lists[i] == null) {
+                    return new int[0];
+                }
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+            int[] result = Arrays.copyOf(lists[0].ids, lists[0].size);
+            int size = result.length;
+            for (int i = 1; i < lists.length && size > 0; i++) {
+                int kept = 0;
+                for (int j = 0; j < size; j++) {
+                    if (lists[i].contains(result[j])) {
+                        result[kept++] = result[j];
+                    }
+                }
+                size = kept;
+            }
+            return size > maxCandidates ? null : Arrays.copyOf(result, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // writes call this inside their transaction, so it must not throw
+    private void disable(String reason) {
+        lock.writeLock().lock();
+        try {
+            disabled = true;
+            ready = false;
+            postings.clear();
+            postingCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.warn("User search index was disabled because {}, searches fall back to the database", reason);
+    }
+
+    @Override
+    public void destroy() {
+        maintenance.shutdownNow();
+    }
+
+    private static long[] trigrams(Document document) {
+        return trigrams(lower(document.firstName()), lower(document.lastName()), lower(document.email()));
+    }
+
+    private static String lower(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static long[] trigrams(String... values) {
+        int count = 0;
+        for (String value : values) {
+            if (value != null && value.length() >= 3) {
+                count += value.length() - 2;
+            }
+        }
+
+        long[] grams = new long[count];
+        int i = 0;
+        for (String value : values) {
+            if (value != null) {
+                for (int j = 0; j + 3 <= value.length(); j++) {
+                    grams[i++] = ((long) value.charAt(j) << 32) | ((long) value.charAt(j + 1) << 16) | value.charAt(j + 2);
+                }
+            }
+        }
+
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int j = 0; j < grams.length; j++) {
+            if (j == 0 || grams[j] != grams[j - 1]) {
+                grams[distinct++] = grams[j];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    private static final class PostingList {
+        private int[] ids = new int[4];
+        private int size;
+
+        boolean add(int id) {
+            // ids are mostly appended in increasing order, so check the tail first
+            if (size == 0 || ids[size - 1] < id) {
+                ensureCapacity();
+                ids[size++] = id;
+                return true;
+            }
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return false;
+            }
+            int insertAt = -index - 1;
+            ensureCapacity();
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+            return true;
+        }
+
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        void trimToSize() {
+            if (ids.length != size) {
+                ids = Arrays.copyOf(ids, size);
+            }
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(4, size + (size >> 1)));
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.khoinguyen.core.repository;
+
+import com.khoinguyen.core.exception.InvalidRequestException;
+import com.khoinguyen.core.model.User;
+import com.khoinguyen.core.util.Gender;
+import com.khoinguyen.core.util.UserStatus;
+import com.khoinguyen.core.util.UserType;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.function.Function;
+
+/**
+ * Columns of {@link User} that clients are allowed to sort (and seek) by.
+ */
+public enum UserSortColumn {
+    ID("id", "id", User::getId, Long::valueOf),
+    FIRST_NAME("firstName", "first_name", User::getFirstName, v -> v),
+    LAST_NAME("lastName", "last_name", User::getLastName, v -> v),
+    EMAIL("email", "email", User::getEmail, v -> v),
+    PHONE("phone", "phone", User::getPhone, v -> v),
+    USERNAME("username", "username", User::getUsername, v -> v),
+    DATE_OF_BIRTH("dateOfBirth", "date_of_birth", User::getDateOfBirth, v -> new Date(Long.parseLong(v))),
+    GENDER("gender", "gender", User::getGender, Gender::valueOf),
+    TYPE("type", "type", User::getType, UserType::valueOf),
+    STATUS("status", "status", User::getStatus, UserStatus::valueOf),
+    CREATED_AT("createdAt", "created_at", User::getCreatedAt, UserSortColumn::parseTimestamp),
+    UPDATED_AT("updatedAt", "updated_at", User::getUpdatedAt, UserSortColumn::parseTimestamp);
+
+    private final String attribute;
+    private final String column;
+    private final Function<User, Object> getter;
+    private final Function<String, Object> parser;
+
+    UserSortColumn(String attribute, String column, Function<User, Object> getter, Function<String, Object> parser) {
+        this.attribute = attribute;
+        this.column = column;
+        this.getter = getter;
+        this.parser = parser;
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public static UserSortColumn of(String attribute) {
+        for (UserSortColumn column : values()) {
+            if (column.attribute.equals(attribute)) {
+                return column;
+            }
+        }
+        throw new InvalidRequestException("Unsupported sort column: " + attribute);
+    }
+
+    String format(User user) {
+        Object value = getter.apply(user);
+        if (value == null) {
+            return null;
+        }
+        // timestamp columns hold microseconds, and rows written by one now() share them: millis would seek back
+        // into that group and repeat its rows
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toInstant().toString();
+        }
+        if (value instanceof Date date) {
+            return String.valueOf(date.getTime());
+        }
+        if (value instanceof Enum<?> e) {
+            return e.name();
+        }
+        return value.toString();
+    }
+
+    Object parse(String value) {
+        return value == null ? null : parser.apply(value);
+    }
+
+    // ISO instants, or epoch millis from cursors issued before timestamps were encoded at full precision
+    private static Object parseTimestamp(String value) {
+        if (!value.isEmpty() && value.chars().allMatch(Character::isDigit)) {
+            return new Timestamp(Long.parseLong(value));
+        }
+        try {
+            return Timestamp.from(Instant.parse(value));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid timestamp: " + value, e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.khoinguyen.core.repository;
+
+import com.khoinguyen.core.dto.request.UserFilter;
+import com.khoinguyen.core.model.Address;
+import com.khoinguyen.core.model.User;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Predicates of the user search. Values are always bound as parameters and the predicates of a filter are added
+ * in a fixed order, so each combination of set fields maps to one SQL string that the driver can keep prepared.
+ */
+public final class UserSpecifications {
+
+    private UserSpecifications() {
+    }
+
+    public static Specification<User> matching(UserFilter filter) {
+        return Specification.where(search(filter.getSearch()))
+                .and(attributeEquals("status", filter.getStatus()))
+                .and(attributeEquals("type", filter.getType()))
+                .and(attributeEquals("gender", filter.getGender()))
+                .and(bornFrom(filter.getDateOfBirthFrom()))
+                .and(bornTo(filter.getDateOfBirthTo()))
+                .and(createdFrom(filter.getCreatedFrom()))
+                .and(createdBefore(filter.getCreatedTo() == null ? null : filter.getCreatedTo().plusDays(1)))
+                .and(livesIn(filter.getCity()));
+    }
+
+    /**
+     * Case-insensitive substring of first name, last name or email; served by the trigram indexes on Postgres.
+     */
+    public static Specification<User> search(String search) {
+        if (!StringUtils.hasText(search)) {
+            return null;
+        }
+        String pattern = SearchRepository.containsPattern(search.toLowerCase(Locale.ROOT));
+        return (root, query, cb) -> cb.or(
+                cb.like(cb.lower(root.get("firstName")), pattern, '\\'),
+                cb.like(cb.lower(root.get("lastName")), pattern, '\\'),
+                cb.like(cb.lower(root.get("email")), pattern, '\\'));
+    }
+
+    public static Specification<User> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+
+    private static Specification<User> attributeEquals(String attribute, Object value) {
+        return value == null ? null : (root, query, cb) -> cb.equal(root.get(attribute), value);
+    }
+
+    private static Specification<User> bornFrom(LocalDate from) {
+        return from == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.<java.util.Date>get("dateOfBirth"), Date.valueOf(from));
+    }
+
+    private static Specification<User> bornTo(LocalDate to) {
+        return to == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.<java.util.Date>get("dateOfBirth"), Date.valueOf(to));
+    }
+
+    private static Specification<User> createdFrom(LocalDate from) {
+        return from == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.<java.util.Date>get("createdAt"), Timestamp.valueOf(from.atStartOfDay()));
+    }
+
+    private static Specification<User> createdBefore(LocalDate before) {
+        return before == null ? null : (root, query, cb) -> cb.lessThan(root.<java.util.Date>get("createdAt"), Timestamp.valueOf(before.atStartOfDay()));
+    }
+
+    // exists rather than a join, so a user with several addresses in the city is listed once
+    private static Specification<User> livesIn(String city) {
+        if (!StringUtils.hasText(city)) {
+            return null;
+        }
+        String value = city.trim().toLowerCase(Locale.ROOT);
+        return (root, query, cb) -> {
+            Subquery<Long> addresses = query.subquery(Long.class);
+            Root<Address> address = addresses.from(Address.class);
+            addresses.select(address.get("id"))
+                    .where(cb.equal(address.get("user"), root), cb.equal(cb.lower(address.get("city")), value));
+            return cb.exists(addresses);
+        };
+    }
+}
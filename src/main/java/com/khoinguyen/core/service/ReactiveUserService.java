@@ -0,0 +1,24 @@
+package com.khoinguyen.core.service;
+
+import com.khoinguyen.core.dto.request.UserRequestDTO;
+import com.khoinguyen.core.dto.response.PageResponse;
+import com.khoinguyen.core.dto.response.UserDetailResponse;
+import com.khoinguyen.core.util.UserStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveUserService {
+    Mono<Long> saveUser(UserRequestDTO user);
+
+    Mono<Void> updateUser(long userId, UserRequestDTO user);
+
+    Mono<Void> changeStatus(long userId, UserStatus status);
+
+    Mono<Void> deleteUser(long userId);
+
+    Mono<UserDetailResponse> getUser(long userId);
+
+    Flux<UserDetailResponse> getUsers(int pageNo, int pageSize, String search, String... sortBy);
+
+    Mono<PageResponse<?>> getUserPage(int pageNo, int pageSize, String search, String... sortBy);
+}
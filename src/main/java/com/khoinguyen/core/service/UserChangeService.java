@@ -0,0 +1,13 @@
+package com.khoinguyen.core.service;
+
+import com.khoinguyen.core.dto.response.PageResponse;
+
+public interface UserChangeService {
+    /**
+     * Up to {@code limit} changes after the {@code since} token, oldest first; nextCursor is the token to pass
+     * next. Without a token the feed starts at the oldest retained change, with "now" it returns no changes and
+     * the token of the latest one. Throws {@link com.khoinguyen.core.exception.ChangeTokenExpiredException} when
+     * changes after the token have been purged.
+     */
+    PageResponse<?> getChanges(String since, int limit);
+}
@@ -0,0 +1,14 @@
+package com.khoinguyen.core.service;
+
+import com.khoinguyen.core.dto.response.UserChangeResponse;
+
+import java.util.List;
+
+/**
+ * Destination of the user changes relayed from the outbox (app.outbox.sink). Batches arrive in position order,
+ * at least once: a batch is published again when recording the sink's position fails after it, so consumers
+ * should skip positions they have already seen. Throwing fails the batch, which is retried on the next run.
+ */
+public interface UserChangeSink {
+    void publish(List<UserChangeResponse> changes);
+}
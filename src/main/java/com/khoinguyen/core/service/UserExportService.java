@@ -0,0 +1,10 @@
+package com.khoinguyen.core.service;
+
+import com.khoinguyen.core.dto.request.UserFilter;
+import com.khoinguyen.core.util.ExportFormat;
+
+import java.io.OutputStream;
+
+public interface UserExportService {
+    void exportUsers(OutputStream out, ExportFormat format, UserFilter filter, boolean includeAddresses);
+}
@@ -0,0 +1,10 @@
+package com.khoinguyen.core.service;
+
+import com.khoinguyen.core.dto.response.UserImportResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface UserImportService {
+    UserImportResponse importUsers(InputStream input) throws IOException;
+}
@@ -1,25 +1,36 @@
 package com.khoinguyen.core.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.khoinguyen.core.dto.request.UserFilter;
 import com.khoinguyen.core.dto.request.UserRequestDTO;
 import com.khoinguyen.core.dto.response.PageResponse;
 import com.khoinguyen.core.dto.response.UserDetailResponse;
+import com.khoinguyen.core.util.CountMode;
 import com.khoinguyen.core.util.UserStatus;
 import jakarta.validation.constraints.Min;
 
 public interface UserService {
     long saveUser(UserRequestDTO user);
 
-    void updateUser(long userId, UserRequestDTO user);
+    /**
+     * The write methods take the version the caller last read (from the ETag), or null to write whatever the
+     * current version is; a mismatch throws {@link com.khoinguyen.core.exception.PreconditionFailedException}.
+     */
+    void updateUser(long userId, UserRequestDTO user, Long expectedVersion);
 
-    void changeStatus(long userId, UserStatus status);
+    void patchUser(long userId, JsonNode patch, Long expectedVersion);
+
+    void changeStatus(long userId, UserStatus status, Long expectedVersion);
 
     void deleteUser(long userId);
 
     UserDetailResponse getUser(long userId);
 
-    PageResponse getAllUsersWithSortBy(int pageNo, int pageSize, String sortBy);
+    long getUserVersion(long userId);
+
+    PageResponse getAllUsersWithSortBy(int pageNo, int pageSize, String sortBy, String cursor, CountMode count, boolean includeAddresses);
 
-    PageResponse getAllUsersWithSortByMultipleColumns(int pageNo, int pageSize, String... sortBy);
+    PageResponse getAllUsersWithSortByMultipleColumns(int pageNo, int pageSize, String cursor, CountMode count, boolean includeAddresses, String... sortBy);
 
-    PageResponse<?> getAllUsersWithSortByMultipleColumnAndSearch(int pageNo, int pageSize, String search, String sortBy);
+    PageResponse<?> getAllUsersWithSortByMultipleColumnAndSearch(int pageNo, int pageSize, UserFilter filter, String sortBy, CountMode count);
 }
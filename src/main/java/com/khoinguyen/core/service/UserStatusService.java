@@ -0,0 +1,14 @@
+package com.khoinguyen.core.service;
+
+import com.khoinguyen.core.util.UserStatus;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+public interface UserStatusService {
+    /**
+     * Queues the status change of every user in {@code userIds}. The future completes once the change is
+     * committed (or superseded by a later change of the same user), and fails if the write fails.
+     */
+    CompletableFuture<Void> changeStatus(Collection<Long> userIds, UserStatus status);
+}
@@ -0,0 +1,47 @@
+package com.khoinguyen.core.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khoinguyen.core.dto.response.UserChangeResponse;
+import com.khoinguyen.core.service.UserChangeSink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends published changes to an NDJSON file, one change per line, and forces each batch to disk before the
+ * relay records it as published.
+ */
+public class FileUserChangeSink implements UserChangeSink {
+
+    private final ObjectMapper objectMapper;
+    private final Path path;
+
+    public FileUserChangeSink(ObjectMapper objectMapper, Path path) {
+        this.objectMapper = objectMapper;
+        this.path = path;
+    }
+
+    @Override
+    public void publish(List<UserChangeResponse> changes) {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            for (UserChangeResponse change : changes) {
+                lines.write(objectMapper.writeValueAsBytes(change));
+                lines.write('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                file.write(buffer);
+            }
+            file.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append user changes to " + path, e);
+        }
+    }
+}
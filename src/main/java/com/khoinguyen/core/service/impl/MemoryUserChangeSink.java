@@ -0,0 +1,36 @@
+package com.khoinguyen.core.service.impl;
+
+import com.khoinguyen.core.dto.response.UserChangeResponse;
+import com.khoinguyen.core.service.UserChangeSink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the last {@code capacity} published changes in process, for tests and local runs.
+ */
+public class MemoryUserChangeSink implements UserChangeSink {
+
+    private final int capacity;
+    private final Deque<UserChangeResponse> changes = new ArrayDeque<>();
+
+    public MemoryUserChangeSink(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void publish(List<UserChangeResponse> published) {
+        for (UserChangeResponse change : published) {
+            if (changes.size() == capacity) {
+                changes.removeFirst();
+            }
+            changes.addLast(change);
+        }
+    }
+
+    public synchronized List<UserChangeResponse> getChanges() {
+        return new ArrayList<>(changes);
+    }
+}
@@ -0,0 +1,293 @@
+package com.khoinguyen.core.service.impl;
+
+import com.khoinguyen.core.configuration.CacheConfig;
+import com.khoinguyen.core.configuration.Translator;
+import com.khoinguyen.core.dto.request.AddressDTO;
+import com.khoinguyen.core.dto.request.UserRequestDTO;
+import com.khoinguyen.core.dto.response.PageResponse;
+import com.khoinguyen.core.dto.response.UserDetailResponse;
+import com.khoinguyen.core.exception.ResourceNotFoundException;
+import com.khoinguyen.core.repository.UserSearchIndex;
+import com.khoinguyen.core.repository.UserSortColumn;
+import com.khoinguyen.core.service.ReactiveUserService;
+import com.khoinguyen.core.util.Gender;
+import com.khoinguyen.core.util.UserChangeType;
+import com.khoinguyen.core.util.UserStatus;
+import com.khoinguyen.core.util.UserType;
+import io.r2dbc.spi.Readable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Sort;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.khoinguyen.core.repository.SearchRepository.containsPattern;
+
+/**
+ * R2DBC implementation of the user API. Rows are streamed with a bounded fetch size, so a list is emitted
+ * while the query is still running and a slow subscriber holds back the fetching instead of buffering rows.
+ * <p>
+ * tbl_user's gender, type and status columns are Postgres enums; their type names are read from the catalog
+ * once, and values are cast to and from text in SQL.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.reactive.enabled", havingValue = "true")
+public class ReactiveUserServiceImpl implements ReactiveUserService {
+
+    private static final String SELECT_USER = "select u.id, u.first_name, u.last_name, u.email, u.phone, u.date_of_birth," +
+            " cast(u.gender as text) as gender, u.username, cast(u.type as text) as type, cast(u.status as text) as status" +
+            " from tbl_user u";
+
+    private static final String SEARCH = " where lower(u.first_name) like lower(:pattern)" +
+            " or lower(u.last_name) like lower(:pattern)" +
+            " or lower(u.email) like lower(:pattern)";
+
+    // the outbox row of a change (see UserChangeRepository), at the version the transaction left the user at
+    private static final String APPEND_CHANGE = "insert into tbl_user_change (user_id, version, type) select id, version, :type from tbl_user where id = :id";
+
+    private final DatabaseClient databaseClient;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final Cache userCache;
+
+    private final UserSearchIndex searchIndex;
+
+    private final int fetchSize;
+
+    private final Mono<Map<String, String>> enumTypes;
+
+    public ReactiveUserServiceImpl(DatabaseClient databaseClient,
+                                   TransactionalOperator reactiveTransactionalOperator,
+                                   CacheManager cacheManager,
+                                   UserSearchIndex searchIndex,
+                                   @Value("${app.reactive.fetch-size:256}") int fetchSize) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = reactiveTransactionalOperator;
+        this.userCache = cacheManager.getCache(CacheConfig.USERS);
+        this.searchIndex = searchIndex;
+        this.fetchSize = fetchSize;
+        this.enumTypes = databaseClient.sql("select a.attname, format_type(a.atttypid, null) from pg_attribute a" +
+                        " where a.attrelid = cast('tbl_user' as regclass) and a.attname in ('gender', 'type', 'status')")
+                .map(row -> Map.entry(row.get(0, String.class), row.get(1, String.class)))
+                .all()
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue))
+                .cache();
+    }
+
+    @Override
+    public Mono<Long> saveUser(UserRequestDTO request) {
+        return enumTypes.flatMap(types -> bindUser(databaseClient.sql(String.format(
+                        "insert into tbl_user (first_name, last_name, date_of_birth, gender, phone, email, username, password, type, status, created_at, updated_at)" +
+                        " values (:firstName, :lastName, :dateOfBirth, cast(:gender as %s), :phone, :email, :username, :password," +
+                        " cast(:type as %s), cast(:status as %s), now(), now()) returning id",
+                        types.get("gender"), types.get("type"), types.get("status"))), request)
+                        .map(row -> row.get(0, Long.class))
+                        .one())
+                .flatMap(userId -> insertAddresses(userId, request.getAddresses())
+                        .then(appendChange(userId, UserChangeType.CREATED))
+                        .thenReturn(userId))
+                .as(transactionalOperator::transactional)
+                .doOnNext(userId -> {
+                    searchIndex.add(new UserSearchIndex.Document(userId, request.getFirstName(), request.getLastName(), request.getEmail()));
+                    log.info("User has added successfully, userId={}", userId);
+                });
+    }
+
+    @Override
+    public Mono<Void> updateUser(long userId, UserRequestDTO request) {
+        return findDocument(userId)
+                .flatMap(indexed -> enumTypes.flatMap(types -> bindUser(databaseClient.sql(String.format(
+                                "update tbl_user set first_name = :firstName, last_name = :lastName, date_of_birth = :dateOfBirth," +
+                                " gender = cast(:gender as %s), phone = :phone, email = :email, username = :username, password = :password," +
+                                " type = cast(:type as %s), status = cast(:status as %s), updated_at = now(), version = version + 1 where id = :id",
+                                types.get("gender"), types.get("type"), types.get("status"))), request)
+                                .bind("id", userId)
+                                .then())
+                        .then(databaseClient.sql("delete from tbl_address where user_id = :userId").bind("userId", userId).then())
+                        .then(insertAddresses(userId, request.getAddresses()))
+                        .then(appendChange(userId, UserChangeType.UPDATED))
+                        .as(transactionalOperator::transactional)
+                        .doOnSuccess(v -> {
+                            userCache.evict(userId);
+                            searchIndex.replace(indexed, new UserSearchIndex.Document(userId, request.getFirstName(), request.getLastName(), request.getEmail()));
+                            log.info("User has updated successfully, userId={}", userId);
+                        }));
+    }
+
+    @Override
+    public Mono<Void> changeStatus(long userId, UserStatus status) {
+        Mono<Void> notFound = userNotFound();
+        return enumTypes.flatMap(types -> databaseClient.sql(String.format(
+                        "with updated as (update tbl_user set status = cast(:status as %s), updated_at = now(), version = version + 1" +
+                        " where id = :id returning id, version) insert into tbl_user_change (user_id, version, type)" +
+                        " select id, version, 'STATUS_CHANGED' from updated", types.get("status")))
+                        .bind("status", status.name())
+                        .bind("id", userId)
+                        .fetch()
+                        .rowsUpdated())
+                .flatMap(updated -> updated == 0 ? notFound : Mono.<Void>empty())
+                .doOnSuccess(v -> {
+                    userCache.evict(userId);
+                    log.info("User has changed successfully, userId={}", userId);
+                });
+    }
+
+    @Override
+    public Mono<Void> deleteUser(long userId) {
+        return findDocument(userId)
+                .flatMap(indexed -> databaseClient.sql("delete from tbl_address where user_id = :userId").bind("userId", userId).then()
+                        .then(databaseClient.sql("with deleted as (delete from tbl_user where id = :id returning id, version)" +
+                                " insert into tbl_user_change (user_id, version, type) select id, version, 'DELETED' from deleted")
+                                .bind("id", userId).then())
+                        .as(transactionalOperator::transactional)
+                        .doOnSuccess(v -> {
+                            userCache.evict(userId);
+                            searchIndex.remove(indexed);
+                            log.info("User has deleted successfully, userId={}", userId);
+                        }));
+    }
+
+    @Override
+    public Mono<UserDetailResponse> getUser(long userId) {
+        return databaseClient.sql(SELECT_USER + " where u.id = :id")
+                .bind("id", userId)
+                .map(ReactiveUserServiceImpl::toUserDetailResponse)
+                .one()
+                .switchIfEmpty(userNotFound());
+    }
+
+    @Override
+    public Flux<UserDetailResponse> getUsers(int pageNo, int pageSize, String search, String... sortBy) {
+        int page = pageNo > 0 ? pageNo - 1 : pageNo;
+        StringBuilder sql = new StringBuilder(SELECT_USER);
+        if (StringUtils.hasText(search)) {
+            sql.append(SEARCH);
+        }
+        sql.append(orderBy(UserServiceImpl.toSortOrders(sortBy))).append(" limit :limit offset :offset");
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString())
+                .filter(statement -> statement.fetchSize(Math.min(fetchSize, pageSize)))
+                .bind("limit", pageSize)
+                .bind("offset", (long) page * pageSize);
+        if (StringUtils.hasText(search)) {
+            spec = spec.bind("pattern", containsPattern(search));
+        }
+        return spec.map(ReactiveUserServiceImpl::toUserDetailResponse).all();
+    }
+
+    @Override
+    public Mono<PageResponse<?>> getUserPage(int pageNo, int pageSize, String search, String... sortBy) {
+        DatabaseClient.GenericExecuteSpec count = databaseClient.sql("select count(*) from tbl_user u" + (StringUtils.hasText(search) ? SEARCH : ""));
+        if (StringUtils.hasText(search)) {
+            count = count.bind("pattern", containsPattern(search));
+        }
+
+        return Mono.zip(getUsers(pageNo, pageSize, search, sortBy).collectList(), count.map(row -> row.get(0, Long.class)).one())
+                .map(result -> PageResponse.builder()
+                        .pageNo(pageNo > 0 ? pageNo - 1 : pageNo)
+                        .pageSize(pageSize)
+                        .totalPage((int) ((result.getT2() + pageSize - 1) / pageSize))
+                        .items(result.getT1())
+                        .build());
+    }
+
+    private static String orderBy(List<Sort.Order> orders) {
+        StringBuilder orderBy = new StringBuilder(" order by ");
+        for (Sort.Order order : orders) {
+            orderBy.append("u.").append(UserSortColumn.of(order.getProperty()).getColumn())
+                    .append(order.isAscending() ? " asc, " : " desc, ");
+        }
+        return orderBy.append("u.id").toString();
+    }
+
+    private Mono<UserSearchIndex.Document> findDocument(long userId) {
+        return databaseClient.sql("select id, first_name, last_name, email from tbl_user where id = :id")
+                .bind("id", userId)
+                .map(row -> new UserSearchIndex.Document(row.get(0, Long.class), row.get(1, String.class), row.get(2, String.class), row.get(3, String.class)))
+                .one()
+                .switchIfEmpty(userNotFound());
+    }
+
+    // call while assembling, when the request thread still carries the request locale
+    private static <T> Mono<T> userNotFound() {
+        String message = Translator.toLocale("user.not.found");
+        return Mono.error(() -> new ResourceNotFoundException(message));
+    }
+
+    private Mono<Void> appendChange(long userId, UserChangeType type) {
+        return databaseClient.sql(APPEND_CHANGE).bind("type", type.name()).bind("id", userId).then();
+    }
+
+    private Mono<Void> insertAddresses(long userId, Iterable<AddressDTO> addresses) {
+        if (addresses == null) {
+            return Mono.empty();
+        }
+        return Flux.fromIterable(addresses)
+                .concatMap(a -> {
+                    DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("insert into tbl_address (apartment_number, floor, building, street_number, street, city, country, address_type, user_id, created_at, updated_at)" +
+                            " values (:apartmentNumber, :floor, :building, :streetNumber, :street, :city, :country, :addressType, :userId, now(), now())");
+                    spec = bind(spec, "apartmentNumber", a.getApartmentNumber(), String.class);
+                    spec = bind(spec, "floor", a.getFloor(), String.class);
+                    spec = bind(spec, "building", a.getBuilding(), String.class);
+                    spec = bind(spec, "streetNumber", a.getStreetNumber(), String.class);
+                    spec = bind(spec, "street", a.getStreet(), String.class);
+                    spec = bind(spec, "city", a.getCity(), String.class);
+                    spec = bind(spec, "country", a.getCountry(), String.class);
+                    spec = bind(spec, "addressType", a.getAddressType(), Integer.class);
+                    return spec.bind("userId", userId).then();
+                })
+                .then();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindUser(DatabaseClient.GenericExecuteSpec spec, UserRequestDTO request) {
+        spec = bind(spec, "firstName", request.getFirstName(), String.class);
+        spec = bind(spec, "lastName", request.getLastName(), String.class);
+        spec = bind(spec, "dateOfBirth", request.getDateOfBirth() == null ? null
+                : request.getDateOfBirth().toInstant().atZone(ZoneId.systemDefault()).toLocalDate(), LocalDate.class);
+        spec = bind(spec, "gender", request.getGender() == null ? null : request.getGender().name(), String.class);
+        spec = bind(spec, "phone", request.getPhone(), String.class);
+        spec = bind(spec, "email", request.getEmail(), String.class);
+        spec = bind(spec, "username", request.getUsername(), String.class);
+        spec = bind(spec, "password", request.getPassword(), String.class);
+        spec = bind(spec, "type", UserType.valueOf(request.getType().toUpperCase()).name(), String.class);
+        return bind(spec, "status", request.getStatus() == null ? null : request.getStatus().name(), String.class);
+    }
+
+    private static <T> DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name, T value, Class<T> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    private static UserDetailResponse toUserDetailResponse(Readable row) {
+        LocalDate dateOfBirth = row.get("date_of_birth", LocalDate.class);
+        String gender = row.get("gender", String.class);
+        String status = row.get("status", String.class);
+        return UserDetailResponse.builder()
+                .id(row.get("id", Long.class))
+                .firstName(row.get("first_name", String.class))
+                .lastName(row.get("last_name", String.class))
+                .email(row.get("email", String.class))
+                .phone(row.get("phone", String.class))
+                .dateOfBirth(dateOfBirth == null ? null : Date.from(dateOfBirth.atStartOfDay(ZoneId.systemDefault()).toInstant()))
+                .gender(gender == null ? null : Gender.valueOf(gender))
+                .username(row.get("username", String.class))
+                .type(row.get("type", String.class))
+                .status(status == null ? null : UserStatus.valueOf(status))
+                .build();
+    }
+}
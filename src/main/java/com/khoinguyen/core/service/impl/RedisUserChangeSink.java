@@ -0,0 +1,53 @@
+package com.khoinguyen.core.service.impl;
+
+import com.khoinguyen.core.dto.response.UserChangeResponse;
+import com.khoinguyen.core.service.UserChangeSink;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adds published changes to a Redis stream, one entry per change with the fields of {@link UserChangeResponse}
+ * (occurredAt in epoch milliseconds), in one pipelined round trip per batch. The stream is trimmed to about
+ * {@code maxLength} entries; consumers read it with XREAD or a consumer group.
+ */
+public class RedisUserChangeSink implements UserChangeSink {
+
+    private final StringRedisTemplate redisTemplate;
+    private final byte[] stream;
+    private final XAddOptions options;
+
+    public RedisUserChangeSink(StringRedisTemplate redisTemplate, String stream, long maxLength) {
+        this.redisTemplate = redisTemplate;
+        this.stream = bytes(stream);
+        this.options = XAddOptions.maxlen(maxLength).approximateTrimming(true);
+    }
+
+    @Override
+    public void publish(List<UserChangeResponse> changes) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (UserChangeResponse change : changes) {
+                Map<byte[], byte[]> fields = new LinkedHashMap<>();
+                fields.put(bytes("position"), bytes(Long.toString(change.getPosition())));
+                fields.put(bytes("userId"), bytes(Long.toString(change.getUserId())));
+                if (change.getVersion() != null) {
+                    fields.put(bytes("version"), bytes(change.getVersion().toString()));
+                }
+                fields.put(bytes("type"), bytes(change.getType().name()));
+                fields.put(bytes("occurredAt"), bytes(Long.toString(change.getOccurredAt().getTime())));
+                connection.streamCommands().xAdd(MapRecord.create(stream, fields), options);
+            }
+            return null;
+        });
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,124 @@
+package com.khoinguyen.core.service.impl;
+
+import com.khoinguyen.core.dto.response.UserChangeResponse;
+import com.khoinguyen.core.repository.UserChangeRepository;
+import com.khoinguyen.core.service.UserChangeSink;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves user changes from the outbox to the change feed and the sink, every app.outbox.relay-interval once the
+ * application is ready (app.outbox.relay.enabled; the SQL is Postgres only). Without it the outbox still fills
+ * up, but the feed and the sink stay where they are.
+ * <p>
+ * Each run first numbers the changes committed since the last one, giving them the next positions in id order;
+ * a position is only ever handed out once the changes before it are visible, so a feed reader that has seen
+ * position n has seen every change up to n. It then publishes the numbered changes past the sink's position, in
+ * batches of app.outbox.batch-size, and moves that position after each batch (at-least-once, see
+ * {@link UserChangeSink}). Both steps run under a Postgres advisory lock, so with several instances one relays
+ * and the others skip the run. A failing sink holds back publishing only; the feed keeps being numbered.
+ * Published changes are deleted after app.outbox.retention.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.outbox.relay.enabled", havingValue = "true")
+public class UserChangeRelay implements DisposableBean {
+
+    private final UserChangeRepository userChangeRepository;
+    private final UserChangeSink sink;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration relayInterval;
+    private final Duration retention;
+    private final ScheduledExecutorService relay = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-change-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter published;
+
+    public UserChangeRelay(UserChangeRepository userChangeRepository,
+                           UserChangeSink sink,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.outbox.batch-size:1000}") int batchSize,
+                           @Value("${app.outbox.relay-interval:500ms}") Duration relayInterval,
+                           @Value("${app.outbox.retention:7d}") Duration retention) {
+        this.userChangeRepository = userChangeRepository;
+        this.sink = sink;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.relayInterval = relayInterval;
+        this.retention = retention;
+        this.published = Counter.builder("user.changes.published")
+                .description("User changes handed to the sink")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        relay.scheduleWithFixedDelay(this::run, relayInterval.toMillis(), relayInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // an exception would cancel the schedule, so every failure ends the run and the next one retries
+    private void run() {
+        try {
+            relay();
+        } catch (RuntimeException e) {
+            log.warn("Relaying user changes failed, retrying on the next run", e);
+        }
+    }
+
+    void relay() {
+        Integer numbered;
+        do {
+            numbered = transactionTemplate.execute(status -> userChangeRepository.tryLockRelay() ? userChangeRepository.number(batchSize) : 0);
+        } while (numbered != null && numbered == batchSize);
+
+        Integer publishedCount;
+        do {
+            publishedCount = transactionTemplate.execute(status -> userChangeRepository.tryLockRelay() ? publishBatch() : 0);
+        } while (publishedCount != null && publishedCount == batchSize);
+
+        Integer purged = transactionTemplate.execute(status ->
+                userChangeRepository.purge(userChangeRepository.sinkPosition(), Instant.now().minus(retention)));
+        if (purged != null && purged > 0) {
+            log.debug("Purged {} user changes older than {}", purged, retention);
+        }
+    }
+
+    private int publishBatch() {
+        long position = userChangeRepository.sinkPosition();
+        List<UserChangeResponse> changes = userChangeRepository.findAfter(position, batchSize);
+        if (changes.isEmpty()) {
+            return 0;
+        }
+        sink.publish(changes);
+        long last = changes.get(changes.size() - 1).getPosition();
+        userChangeRepository.setSinkPosition(last);
+        published.increment(changes.size());
+        return changes.size();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        relay.shutdown();
+        relay.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,68 @@
+package com.khoinguyen.core.service.impl;
+
+import com.khoinguyen.core.dto.response.PageResponse;
+import com.khoinguyen.core.dto.response.UserChangeResponse;
+import com.khoinguyen.core.exception.ChangeTokenExpiredException;
+import com.khoinguyen.core.exception.InvalidRequestException;
+import com.khoinguyen.core.repository.UserChangeRepository;
+import com.khoinguyen.core.service.UserChangeService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * The change feed reads the positions handed out by {@link UserChangeRelay}. They have no gaps and purging only
+ * removes the oldest ones, so a page that does not start right after the token means changes were purged in
+ * between, and the consumer has to resync instead of silently missing them.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserChangeServiceImpl implements UserChangeService {
+
+    static final String NOW = "now";
+
+    private final UserChangeRepository userChangeRepository;
+
+    @Override
+    @Transactional(readOnly = true)
+    public PageResponse<?> getChanges(String since, int limit) {
+        if (NOW.equals(since)) {
+            return page(List.of(), limit, false, userChangeRepository.latestPosition());
+        }
+
+        long after = since == null ? 0 : parse(since);
+        List<UserChangeResponse> changes = userChangeRepository.findAfter(after, limit + 1);
+        if (since != null && !changes.isEmpty() && changes.get(0).getPosition() != after + 1) {
+            throw new ChangeTokenExpiredException("Changes after " + since + " have been purged, resync the users and start from since=now");
+        }
+
+        boolean hasNext = changes.size() > limit;
+        if (hasNext) {
+            changes = changes.subList(0, limit);
+        }
+        return page(changes, limit, hasNext, changes.isEmpty() ? after : changes.get(changes.size() - 1).getPosition());
+    }
+
+    private static long parse(String since) {
+        try {
+            long position = Long.parseLong(since);
+            if (position >= 0) {
+                return position;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new InvalidRequestException("Invalid change token: " + since);
+    }
+
+    private static PageResponse<?> page(List<UserChangeResponse> changes, int limit, boolean hasNext, long position) {
+        return PageResponse.builder()
+                .pageSize(limit)
+                .hasNext(hasNext)
+                .items(changes)
+                .nextCursor(Long.toString(position))
+                .build();
+    }
+}
@@ -0,0 +1,210 @@
+package com.khoinguyen.core.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khoinguyen.core.dto.request.UserRequestDTO;
+import com.khoinguyen.core.dto.response.UserImportResponse;
+import com.khoinguyen.core.model.Address;
+import com.khoinguyen.core.model.User;
+import com.khoinguyen.core.repository.UserChangeRepository;
+import com.khoinguyen.core.repository.UserJdbcRepository;
+import com.khoinguyen.core.repository.UserSearchIndex;
+import com.khoinguyen.core.service.UserImportService;
+import com.khoinguyen.core.util.UserChangeType;
+import com.khoinguyen.core.util.UserType;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Streams a JSON array or NDJSON body of {@link UserRequestDTO}, validates each record and writes valid ones
+ * in JDBC batches. Invalid records and records rejected by the database are reported by their position in
+ * the input without aborting the rest of the import.
+ */
+@Slf4j
+@Service
+public class UserImportServiceImpl implements UserImportService {
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final UserJdbcRepository userJdbcRepository;
+    private final UserChangeRepository userChangeRepository;
+    private final UserSearchIndex searchIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxReportedFailures;
+
+    public UserImportServiceImpl(ObjectMapper objectMapper,
+                                 Validator validator,
+                                 UserJdbcRepository userJdbcRepository,
+                                 UserChangeRepository userChangeRepository,
+                                 UserSearchIndex searchIndex,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.import.batch-size:1000}") int batchSize,
+                                 @Value("${app.import.max-reported-failures:1000}") int maxReportedFailures) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.userJdbcRepository = userJdbcRepository;
+        this.userChangeRepository = userChangeRepository;
+        this.searchIndex = searchIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxReportedFailures = maxReportedFailures;
+    }
+
+    @Override
+    public UserImportResponse importUsers(InputStream input) throws IOException {
+        Progress progress = new Progress();
+        List<Row> chunk = new ArrayList<>(batchSize);
+
+        try (MappingIterator<UserRequestDTO> iterator = objectMapper.readerFor(UserRequestDTO.class).readValues(input)) {
+            long index = 0;
+            while (true) {
+                UserRequestDTO request;
+                try {
+                    if (!iterator.hasNextValue()) {
+                        break;
+                    }
+                    request = iterator.nextValue();
+                } catch (JsonMappingException e) {
+                    // the iterator skips to the end of the broken record
+                    progress.fail(index++, e.getOriginalMessage());
+                    continue;
+                } catch (JsonProcessingException e) {
+                    // malformed JSON, nothing after this point can be read reliably
+                    progress.fail(index, e.getOriginalMessage());
+                    break;
+                }
+
+                Set<ConstraintViolation<UserRequestDTO>> violations = validator.validate(request);
+                if (!violations.isEmpty()) {
+                    progress.fail(index, violations.stream()
+                            .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                            .sorted()
+                            .collect(Collectors.joining(", ")));
+                } else {
+                    chunk.add(new Row(index, request));
+                    if (chunk.size() >= batchSize) {
+                        flush(chunk, progress);
+                    }
+                }
+                index++;
+            }
+        }
+        flush(chunk, progress);
+
+        log.info("Users imported, total={}, imported={}, failed={}", progress.total(), progress.imported, progress.failed);
+
+        return UserImportResponse.builder()
+                .total(progress.total())
+                .imported(progress.imported)
+                .failed(progress.failed)
+                .failures(progress.failures)
+                .build();
+    }
+
+    private void flush(List<Row> chunk, Progress progress) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<User> users = transactionTemplate.execute(status -> insert(chunk));
+            progress.imported += chunk.size();
+            users.forEach(user -> searchIndex.add(UserSearchIndex.Document.of(user)));
+        } catch (DataAccessException e) {
+            log.warn("Import batch rejected, retrying its {} records one by one: {}", chunk.size(), e.getMessage());
+            for (Row row : chunk) {
+                try {
+                    List<User> users = transactionTemplate.execute(status -> insert(List.of(row)));
+                    progress.imported++;
+                    users.forEach(user -> searchIndex.add(UserSearchIndex.Document.of(user)));
+                } catch (DataAccessException ex) {
+                    progress.fail(row.index(), NestedExceptionUtils.getMostSpecificCause(ex).getMessage());
+                }
+            }
+        }
+        chunk.clear();
+    }
+
+    private List<User> insert(List<Row> rows) {
+        List<Long> userIds = userJdbcRepository.nextIds("tbl_user", rows.size());
+        List<User> users = new ArrayList<>(rows.size());
+        List<Address> addresses = new ArrayList<>();
+
+        for (int i = 0; i < rows.size(); i++) {
+            UserRequestDTO request = rows.get(i).request();
+            User user = User.builder()
+                    .firstName(request.getFirstName())
+                    .lastName(request.getLastName())
+                    .dateOfBirth(request.getDateOfBirth())
+                    .gender(request.getGender())
+                    .phone(request.getPhone())
+                    .email(request.getEmail())
+                    .username(request.getUsername())
+                    .password(request.getPassword())
+                    .status(request.getStatus())
+                    .type(UserType.valueOf(request.getType().toUpperCase()))
+                    .build();
+            user.setId(userIds.get(i));
+            users.add(user);
+
+            request.getAddresses().forEach(a -> addresses.add(Address.builder()
+                    .apartmentNumber(a.getApartmentNumber())
+                    .floor(a.getFloor())
+                    .building(a.getBuilding())
+                    .streetNumber(a.getStreetNumber())
+                    .street(a.getStreet())
+                    .city(a.getCity())
+                    .country(a.getCountry())
+                    .addressType(a.getAddressType())
+                    .user(user)
+                    .build()));
+        }
+
+        List<Long> addressIds = userJdbcRepository.nextIds("tbl_address", addresses.size());
+        for (int i = 0; i < addresses.size(); i++) {
+            addresses.get(i).setId(addressIds.get(i));
+        }
+
+        userJdbcRepository.insertUsers(users, batchSize);
+        userJdbcRepository.insertAddresses(addresses, batchSize);
+        userChangeRepository.appendCurrentVersion(userIds, UserChangeType.CREATED);
+        return users;
+    }
+
+    private record Row(long index, UserRequestDTO request) {
+    }
+
+    private class Progress {
+        private long imported;
+        private long failed;
+        private final List<UserImportResponse.Failure> failures = new ArrayList<>();
+
+        void fail(long index, String message) {
+            failed++;
+            if (failures.size() < maxReportedFailures) {
+                failures.add(new UserImportResponse.Failure(index, message));
+            }
+        }
+
+        long total() {
+            return imported + failed;
+        }
+    }
+}
@@ -1,33 +1,70 @@
 package com.khoinguyen.core.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.khoinguyen.core.configuration.CacheConfig;
+import com.khoinguyen.core.configuration.ReadYourWrites;
 import com.khoinguyen.core.configuration.Translator;
 import com.khoinguyen.core.dto.request.AddressDTO;
+import com.khoinguyen.core.dto.request.UserFilter;
 import com.khoinguyen.core.dto.request.UserRequestDTO;
+import com.khoinguyen.core.dto.response.AddressResponse;
 import com.khoinguyen.core.dto.response.PageResponse;
 import com.khoinguyen.core.dto.response.UserDetailResponse;
+import com.khoinguyen.core.exception.InvalidRequestException;
+import com.khoinguyen.core.exception.PreconditionFailedException;
 import com.khoinguyen.core.exception.ResourceNotFoundException;
 import com.khoinguyen.core.model.Address;
 import com.khoinguyen.core.model.User;
+import com.khoinguyen.core.repository.AddressRepository;
+import com.khoinguyen.core.repository.UserChangeRepository;
+import com.khoinguyen.core.repository.KeysetCursor;
 import com.khoinguyen.core.repository.SearchRepository;
+import com.khoinguyen.core.repository.UserCountEstimator;
+import com.khoinguyen.core.repository.UserDetailProjection;
 import com.khoinguyen.core.repository.UserRepository;
+import com.khoinguyen.core.repository.UserSearchIndex;
 import com.khoinguyen.core.service.UserService;
+import com.khoinguyen.core.util.CountMode;
+import com.khoinguyen.core.util.UserChangeType;
 import com.khoinguyen.core.util.UserStatus;
 import com.khoinguyen.core.util.UserType;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -35,9 +72,26 @@ import java.util.regex.Pattern;
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
 
+    private final AddressRepository addressRepository;
+
     private final SearchRepository repository;
 
+    private final UserCountEstimator countEstimator;
+
+    private final UserSearchIndex searchIndex;
+
+    private final UserChangeRepository userChangeRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    /**
+     * Every write appends its change to the outbox (see UserChangeRelay) in the same transaction, after the user
+     * row is written.
+     */
     @Override
+    @Transactional
     public long saveUser(UserRequestDTO request) {
         User user = User.builder()
                 .firstName(request.getFirstName())
@@ -64,121 +118,345 @@ public class UserServiceImpl implements UserService {
                         .addressType(a.getAddressType())
                         .build()));
         userRepository.save(user);
+        // the id and version are assigned already, the inserts themselves stay batched until the commit
+        userChangeRepository.append(user.getId(), user.getVersion(), UserChangeType.CREATED);
+        UserSearchIndex.Document created = UserSearchIndex.Document.of(user);
+        afterCommit(() -> searchIndex.add(created));
 
         log.info("User has added successfully, userId={}", user.getId());
 
         return user.getId();
     }
 
+    /**
+     * Read-modify-write under the user's version: a concurrent write between the read and the commit fails the
+     * UPDATE, and the whole transaction is retried on fresh state. With an expected version the retry ends in a
+     * {@link PreconditionFailedException}, without one it applies the request on top of the other write.
+     */
     @Override
-    public void updateUser(long userId, UserRequestDTO request) {
-        User user = getUserById(userId);
-        user.setFirstName(request.getFirstName());
-        user.setLastName(request.getLastName());
-        user.setDateOfBirth(request.getDateOfBirth());
-        user.setGender(request.getGender());
-        user.setPhone(request.getPhone());
-        if (!request.getEmail().equals(user.getEmail())) {
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USERS, key = "#userId")
+    @Retryable(retryFor = OptimisticLockingFailureException.class, maxAttempts = 3,
+            backoff = @Backoff(delay = 20, multiplier = 2, random = true))
+    public void updateUser(long userId, UserRequestDTO request, Long expectedVersion) {
+        User user = getUserById(userId, expectedVersion);
+        UserSearchIndex.Document indexed = UserSearchIndex.Document.of(user);
+        applyRequest(user, request, field -> true);
+        appendUpdate(user);
+        UserSearchIndex.Document updated = UserSearchIndex.Document.of(user);
+        afterCommit(() -> searchIndex.replace(indexed, updated));
+
+        log.info("User has updated successfully, userId={}", userId);
+    }
+
+    /**
+     * JSON Merge Patch (RFC 7386) of the user's {@link UserRequestDTO} representation: the patch is merged into
+     * the current state, the result is validated like a PUT body and then applied. Only columns whose value
+     * changes are written (@DynamicUpdate); an "addresses" member replaces the list as a whole and is diffed
+     * against the stored rows. Conflicts are retried like {@link #updateUser}.
+     */
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USERS, key = "#userId")
+    @Retryable(retryFor = OptimisticLockingFailureException.class, maxAttempts = 3,
+            backoff = @Backoff(delay = 20, multiplier = 2, random = true))
+    public void patchUser(long userId, JsonNode patch, Long expectedVersion) {
+        User user = getUserById(userId, expectedVersion);
+        UserSearchIndex.Document indexed = UserSearchIndex.Document.of(user);
+
+        ObjectNode current = objectMapper.valueToTree(toUserRequest(user));
+        if (user.getDateOfBirth() != null) {
+            // request bodies bind dateOfBirth as yyyy-MM-dd, whatever @JsonFormat says for writing
+            current.put("dateOfBirth", new java.sql.Date(user.getDateOfBirth().getTime()).toLocalDate().toString());
+        }
+        UserRequestDTO request;
+        try {
+            request = objectMapper.treeToValue(mergePatch(current, patch), UserRequestDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new InvalidRequestException("Invalid patch: " + e.getOriginalMessage());
+        }
+        Set<ConstraintViolation<UserRequestDTO>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+
+        // members the patch leaves out keep their stored value, rather than a round trip through JSON
+        applyRequest(user, request, patch::has);
+        appendUpdate(user);
+        UserSearchIndex.Document updated = UserSearchIndex.Document.of(user);
+        afterCommit(() -> searchIndex.replace(indexed, updated));
+
+        log.info("User has patched successfully, userId={}", userId);
+    }
+
+    // the index is not transactional: a rolled back write, or a failed attempt of a retried one, must not reach it
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // flushes to learn whether the request changed anything and at which version the user ends up
+    private void appendUpdate(User user) {
+        Long version = user.getVersion();
+        userRepository.flush();
+        if (!Objects.equals(version, user.getVersion())) {
+            userChangeRepository.append(user.getId(), user.getVersion(), UserChangeType.UPDATED);
+        }
+    }
+
+    static JsonNode mergePatch(JsonNode target, JsonNode patch) {
+        if (!patch.isObject()) {
+            return patch;
+        }
+        ObjectNode result = target != null && target.isObject() ? ((ObjectNode) target).deepCopy() : JsonNodeFactory.instance.objectNode();
+        patch.fields().forEachRemaining(member -> {
+            if (member.getValue().isNull()) {
+                result.remove(member.getKey());
+            } else {
+                result.set(member.getKey(), mergePatch(result.get(member.getKey()), member.getValue()));
+            }
+        });
+        return result;
+    }
+
+    // setters of unchanged values leave the entity clean, so dirty checking writes the changed columns only
+    private void applyRequest(User user, UserRequestDTO request, Predicate<String> present) {
+        if (present.test("firstName")) {
+            user.setFirstName(request.getFirstName());
+        }
+        if (present.test("lastName")) {
+            user.setLastName(request.getLastName());
+        }
+        if (present.test("dateOfBirth")) {
+            user.setDateOfBirth(request.getDateOfBirth());
+        }
+        if (present.test("gender")) {
+            user.setGender(request.getGender());
+        }
+        if (present.test("phone")) {
+            user.setPhone(request.getPhone());
+        }
+        if (present.test("email") && !Objects.equals(request.getEmail(), user.getEmail())) {
             // check email from database if not exist then allow update email otherwise throw exception
             user.setEmail(request.getEmail());
         }
-        user.setUsername(request.getUsername());
-        user.setPassword(request.getPassword());
-        user.setStatus(request.getStatus());
-        user.setType(UserType.valueOf(request.getType().toUpperCase()));
-        user.setAddresses(convertToAddress(request.getAddresses()));
+        if (present.test("username")) {
+            user.setUsername(request.getUsername());
+        }
+        if (present.test("password")) {
+            user.setPassword(request.getPassword());
+        }
+        if (present.test("status")) {
+            user.setStatus(request.getStatus());
+        }
+        if (present.test("type")) {
+            user.setType(UserType.valueOf(request.getType().toUpperCase()));
+        }
+        if (present.test("addresses") && mergeAddresses(user, request.getAddresses())) {
+            // the mapped-by collection does not version the user, so dirty a user column to move its ETag
+            user.setUpdatedAt(new Date());
+        }
+    }
 
+    /**
+     * Diffs the requested addresses against the stored ones: identical rows are kept as they are, rows of the
+     * same addressType are updated in place, the rest are inserted or deleted (orphanRemoval). Returns whether
+     * any row changed.
+     */
+    private static boolean mergeAddresses(User user, Set<AddressDTO> requested) {
+        List<Address> unmatched = new ArrayList<>(user.getAddresses() == null ? Set.of() : user.getAddresses());
+        List<AddressDTO> remaining = new ArrayList<>();
+        for (AddressDTO dto : requested) {
+            Address same = unmatched.stream().filter(a -> sameAddress(a, dto)).findFirst().orElse(null);
+            if (same != null) {
+                unmatched.remove(same);
+            } else {
+                remaining.add(dto);
+            }
+        }
 
-        userRepository.save(user);
+        for (AddressDTO dto : remaining) {
+            Address sameType = dto.getAddressType() == null ? null : unmatched.stream()
+                    .filter(a -> dto.getAddressType().equals(a.getAddressType()))
+                    .findFirst().orElse(null);
+            if (sameType != null) {
+                unmatched.remove(sameType);
+                copyAddress(dto, sameType);
+            } else {
+                Address address = new Address();
+                copyAddress(dto, address);
+                user.saveAddress(address);
+            }
+        }
 
-        log.info("User has updated successfully, userId={}", userId);
+        unmatched.forEach(user.getAddresses()::remove);
+        return !remaining.isEmpty() || !unmatched.isEmpty();
+    }
+
+    private static boolean sameAddress(Address address, AddressDTO dto) {
+        return Objects.equals(address.getApartmentNumber(), dto.getApartmentNumber())
+                && Objects.equals(address.getFloor(), dto.getFloor())
+                && Objects.equals(address.getBuilding(), dto.getBuilding())
+                && Objects.equals(address.getStreetNumber(), dto.getStreetNumber())
+                && Objects.equals(address.getStreet(), dto.getStreet())
+                && Objects.equals(address.getCity(), dto.getCity())
+                && Objects.equals(address.getCountry(), dto.getCountry())
+                && Objects.equals(address.getAddressType(), dto.getAddressType());
+    }
+
+    private static void copyAddress(AddressDTO dto, Address address) {
+        address.setApartmentNumber(dto.getApartmentNumber());
+        address.setFloor(dto.getFloor());
+        address.setBuilding(dto.getBuilding());
+        address.setStreetNumber(dto.getStreetNumber());
+        address.setStreet(dto.getStreet());
+        address.setCity(dto.getCity());
+        address.setCountry(dto.getCountry());
+        address.setAddressType(dto.getAddressType());
+    }
+
+    private static UserRequestDTO toUserRequest(User user) {
+        return UserRequestDTO.builder()
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .email(user.getEmail())
+                .phone(user.getPhone())
+                .dateOfBirth(user.getDateOfBirth())
+                .gender(user.getGender())
+                .username(user.getUsername())
+                .password(user.getPassword())
+                .type(user.getType() == null ? null : user.getType().name())
+                .addresses(user.getAddresses() == null ? Set.of() : user.getAddresses().stream()
+                        .map(a -> AddressDTO.builder()
+                                .apartmentNumber(a.getApartmentNumber())
+                                .floor(a.getFloor())
+                                .building(a.getBuilding())
+                                .streetNumber(a.getStreetNumber())
+                                .street(a.getStreet())
+                                .city(a.getCity())
+                                .country(a.getCountry())
+                                .addressType(a.getAddressType())
+                                .build())
+                        .collect(Collectors.toSet()))
+                .status(user.getStatus())
+                .build();
     }
 
+    /**
+     * One UPDATE that bumps the version, so it cannot lose a concurrent write and needs no retry; with an expected
+     * version the row is only updated while it is still at that version.
+     */
     @Override
-    public void changeStatus(long userId, UserStatus status) {
-        User user = getUserById(userId);
-        user.setStatus(status);
-        userRepository.save(user);
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USERS, key = "#userId")
+    public void changeStatus(long userId, UserStatus status, Long expectedVersion) {
+        int updated = expectedVersion == null
+                ? userRepository.updateStatus(userId, status)
+                : userRepository.updateStatus(userId, status, expectedVersion);
+        if (updated == 0) {
+            if (expectedVersion != null && userRepository.existsById(userId)) {
+                throw new PreconditionFailedException(Translator.toLocale("user.version.mismatch"));
+            }
+            throw new ResourceNotFoundException(Translator.toLocale("user.not.found"));
+        }
+        userChangeRepository.appendCurrentVersion(List.of(userId), UserChangeType.STATUS_CHANGED);
 
         log.info("User has changed successfully, userId={}", userId);
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USERS, key = "#userId")
     public void deleteUser(long userId) {
         User user = getUserById(userId);
         userRepository.delete(user);
+        userRepository.flush();
+        userChangeRepository.append(userId, user.getVersion(), UserChangeType.DELETED);
+        UserSearchIndex.Document deleted = UserSearchIndex.Document.of(user);
+        afterCommit(() -> searchIndex.remove(deleted));
         log.info("User has deleted successfully, userId={}", userId);
     }
 
+    /**
+     * Loaded from the primary even with read replicas: the result is cached for every client, and a version read
+     * from a lagging replica would be served (and tagged) as current until it expires.
+     */
     @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.USERS, key = "#userId")
     public UserDetailResponse getUser(long userId) {
-        User user = getUserById(userId);
+        UserDetailProjection user = ReadYourWrites.onPrimary(() -> userRepository.findProjectedById(userId))
+                .orElseThrow(() -> new ResourceNotFoundException(Translator.toLocale("user.not.found")));
         log.info("User has retrieved successfully, userId={}", userId);
-        return UserDetailResponse.builder()
-                .id(userId)
-                .firstName(user.getFirstName())
-                .lastName(user.getLastName())
-                .dateOfBirth(user.getDateOfBirth())
-                .gender(user.getGender())
-                .phone(user.getPhone())
-                .email(user.getEmail())
-                .username(user.getUsername())
-                .status(user.getStatus())
-                .type(user.getType().name())
-                .build();
+        return toUserDetailResponse(user);
+    }
+
+    /**
+     * One column by primary key, not cached: every write path (JPA, bulk JDBC, R2DBC) moves the version in the
+     * same statement, so the row is always current while a second cache would have to be kept coherent.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long getUserVersion(long userId) {
+        return userRepository.findVersionById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException(Translator.toLocale("user.not.found")));
     }
 
     @Override
-    public PageResponse getAllUsersWithSortBy(int pageNo, int pageSize, String sortBy) {
+    @Transactional(readOnly = true)
+    public PageResponse getAllUsersWithSortBy(int pageNo, int pageSize, String sortBy, String cursor, CountMode count, boolean includeAddresses) {
         pageNo = pageNo > 0 ? pageNo - 1 : pageNo;
 
-        List<Sort.Order> sorts = new ArrayList<>();
-        if(StringUtils.hasLength(sortBy)) {
-            Pattern pattern = Pattern.compile("(\\w+?)(:)(.*)");
-            Matcher matcher = pattern.matcher(sortBy);
-            if(matcher.find()) {
-                if(matcher.group(3).equalsIgnoreCase("asc")) {
-                    sorts.add(new Sort.Order(Sort.Direction.ASC, matcher.group(1)));
-                }
-                else if(matcher.group(3).equalsIgnoreCase("desc")) {
-                    sorts.add(new Sort.Order(Sort.Direction.DESC, matcher.group(1)));
-                }
-            }
+        List<Sort.Order> sorts = toSortOrders(sortBy);
+
+        if (cursor != null) {
+            return getAllUsersWithCursor(pageSize, sorts, cursor, includeAddresses);
         }
 
-        Pageable pageable = PageRequest.of(pageNo, pageSize, Sort.by(sorts));
-        Page<User> page = userRepository.findAll(pageable);
+        return getUserPage(PageRequest.of(pageNo, pageSize, Sort.by(sorts)), count, includeAddresses);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PageResponse getAllUsersWithSortByMultipleColumns(int pageNo, int pageSize, String cursor, CountMode count, boolean includeAddresses, String... sortBy) {
+        pageNo = pageNo > 0 ? pageNo - 1 : pageNo;
 
-        List<UserDetailResponse> list = page.stream().map(user -> UserDetailResponse.builder()
-                        .id(user.getId())
-                        .firstName(user.getFirstName())
-                        .lastName(user.getLastName())
-                        .dateOfBirth(user.getDateOfBirth())
-                        .gender(user.getGender())
-                        .phone(user.getPhone())
-                        .email(user.getEmail())
-                        .username(user.getUsername())
-                        .status(user.getStatus())
-                        .type(user.getType().name())
-                        .build())
-                .toList();
+        List<Sort.Order> orders = toSortOrders(sortBy);
 
-        return PageResponse.builder()
-                .pageNo(pageNo)
-                .pageSize(pageSize)
-                .totalPage(page.getTotalPages())
-                .items(list)
-                .build();
+        if (cursor != null) {
+            return getAllUsersWithCursor(pageSize, orders, cursor, includeAddresses);
+        }
+
+        return getUserPage(PageRequest.of(pageNo, pageSize, Sort.by(orders)), count, includeAddresses);
     }
 
     @Override
-    public PageResponse getAllUsersWithSortByMultipleColumns(int pageNo, int pageSize, String... sortBy) {
+    @Transactional(readOnly = true)
+    public PageResponse<?> getAllUsersWithSortByMultipleColumnAndSearch(int pageNo, int pageSize, UserFilter filter, String sortBy, CountMode count) {
         pageNo = pageNo > 0 ? pageNo - 1 : pageNo;
 
+        return repository.getAllUsersWithSortByMultipleColumnAndSearch(pageNo, pageSize, filter, sortBy, count);
+    }
+
+    /**
+     * Parses "field:asc" / "field:desc" expressions; anything else is ignored.
+     */
+    static List<Sort.Order> toSortOrders(String... sortBy) {
         List<Sort.Order> orders = new ArrayList<>();
 
         if(sortBy != null) {
             for(String s: sortBy) {
+                if(!StringUtils.hasLength(s)) {
+                    continue;
+                }
                 Pattern pattern = Pattern.compile("(\\w+?)(:)(.*)");
                 Matcher matcher = pattern.matcher(s);
                 if(matcher.find()) {
@@ -191,35 +469,119 @@ public class UserServiceImpl implements UserService {
                 }
             }
         }
+        return orders;
+    }
 
-        Pageable pageable = PageRequest.of(pageNo, pageSize, Sort.by(orders));
-        Page<User> page = userRepository.findAll(pageable);
+    private PageResponse<?> getUserPage(Pageable pageable, CountMode count, boolean includeAddresses) {
+        if (count == CountMode.EXACT) {
+            Page<UserDetailProjection> page = userRepository.findAllProjectedBy(pageable);
+            return PageResponse.builder()
+                    .pageNo(pageable.getPageNumber())
+                    .pageSize(pageable.getPageSize())
+                    .totalPage(page.getTotalPages())
+                    .items(toUserDetailResponses(page.getContent(), includeAddresses))
+                    .build();
+        }
 
-        List<UserDetailResponse> list = page.stream().map(user -> UserDetailResponse.builder()
-                        .id(user.getId())
-                        .firstName(user.getFirstName())
-                        .lastName(user.getLastName())
-                        .dateOfBirth(user.getDateOfBirth())
-                        .gender(user.getGender())
-                        .phone(user.getPhone())
-                        .email(user.getEmail())
-                        .username(user.getUsername())
-                        .status(user.getStatus())
-                        .type(user.getType().name())
-                        .build())
-                .toList();
+        // Slice queries fetch pageSize + 1 rows to compute hasNext and skip the count query
+        Slice<UserDetailProjection> slice = userRepository.findSliceProjectedBy(pageable);
+        return PageResponse.builder()
+                .pageNo(pageable.getPageNumber())
+                .pageSize(pageable.getPageSize())
+                .totalPage(count == CountMode.APPROXIMATE ? approximateTotalPages(pageable.getPageSize()) : null)
+                .hasNext(slice.hasNext())
+                .items(toUserDetailResponses(slice.getContent(), includeAddresses))
+                .build();
+    }
+
+    // null when there is no estimate: the listing then only has hasNext, as with count=NONE
+    private Integer approximateTotalPages(int pageSize) {
+        OptionalLong estimate = countEstimator.estimate();
+        return estimate.isPresent() ? (int) ((estimate.getAsLong() + pageSize - 1) / pageSize) : null;
+    }
+
+    /**
+     * Keyset pagination: an empty cursor starts from the first row, otherwise the page continues after
+     * the row encoded in the cursor.
+     */
+    private PageResponse<?> getAllUsersWithCursor(int pageSize, List<Sort.Order> orders, String cursor, boolean includeAddresses) {
+        List<Sort.Order> seekOrders = KeysetCursor.withTieBreaker(orders);
+        List<Object> after = StringUtils.hasText(cursor) ? KeysetCursor.decode(seekOrders, cursor) : null;
+
+        List<User> users = repository.getUsersAfterCursor(seekOrders, after, pageSize + 1);
+        boolean hasNext = users.size() > pageSize;
+        if (hasNext) {
+            users = users.subList(0, pageSize);
+        }
 
         return PageResponse.builder()
-                .pageNo(pageNo)
                 .pageSize(pageSize)
-                .totalPage(page.getTotalPages())
-                .items(list)
+                .hasNext(hasNext)
+                .items(withAddresses(users.stream().map(UserServiceImpl::toUserDetailResponse).toList(), includeAddresses))
+                .nextCursor(hasNext ? KeysetCursor.encode(seekOrders, users.get(users.size() - 1)) : null)
                 .build();
     }
 
-    @Override
-    public PageResponse<?> getAllUsersWithSortByMultipleColumnAndSearch(int pageNo, int pageSize, String search, String sortBy) {
-        return repository.getAllUsersWithSortByMultipleColumnAndSearch(pageNo, pageSize, search, sortBy);
+    static UserDetailResponse toUserDetailResponse(User user) {
+        return UserDetailResponse.builder()
+                .id(user.getId())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .dateOfBirth(user.getDateOfBirth())
+                .gender(user.getGender())
+                .phone(user.getPhone())
+                .email(user.getEmail())
+                .username(user.getUsername())
+                .status(user.getStatus())
+                .type(user.getType().name())
+                .version(user.getVersion())
+                .build();
+    }
+
+    private List<UserDetailResponse> toUserDetailResponses(List<UserDetailProjection> users, boolean includeAddresses) {
+        return withAddresses(users.stream().map(UserServiceImpl::toUserDetailResponse).toList(), includeAddresses);
+    }
+
+    /**
+     * Loads the addresses of a whole page with one IN query instead of one lazy load per user.
+     */
+    private List<UserDetailResponse> withAddresses(List<UserDetailResponse> users, boolean includeAddresses) {
+        if (!includeAddresses || users.isEmpty()) {
+            return users;
+        }
+
+        Map<Long, List<AddressResponse>> addresses = new HashMap<>();
+        for (Address a : addressRepository.findByUserIdIn(users.stream().map(UserDetailResponse::getId).toList())) {
+            addresses.computeIfAbsent(a.getUser().getId(), k -> new ArrayList<>()).add(AddressResponse.builder()
+                    .id(a.getId())
+                    .apartmentNumber(a.getApartmentNumber())
+                    .floor(a.getFloor())
+                    .building(a.getBuilding())
+                    .streetNumber(a.getStreetNumber())
+                    .street(a.getStreet())
+                    .city(a.getCity())
+                    .country(a.getCountry())
+                    .addressType(a.getAddressType())
+                    .build());
+        }
+        users.forEach(u -> u.setAddresses(addresses.getOrDefault(u.getId(), List.of())));
+        return users;
+    }
+
+    static UserDetailResponse toUserDetailResponse(UserDetailProjection user) {
+        return UserDetailResponse.builder()
+                .id(user.getId())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .dateOfBirth(user.getDateOfBirth())
+                .gender(user.getGender())
+                .phone(user.getPhone())
+                .email(user.getEmail())
+                .username(user.getUsername())
+                .status(user.getStatus())
+                .type(user.getType().name())
+                .version(user.getVersion())
+                .build();
     }
 
     private User getUserById(long userId) {
@@ -227,20 +589,11 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new ResourceNotFoundException(Translator.toLocale("user.not.found")));
     }
 
-    private Set<Address> convertToAddress(Set<AddressDTO> addresses) {
-        Set<Address> result = new HashSet<>();
-        addresses.forEach(a ->
-                result.add(Address.builder()
-                        .apartmentNumber(a.getApartmentNumber())
-                        .floor(a.getFloor())
-                        .building(a.getBuilding())
-                        .streetNumber(a.getStreetNumber())
-                        .street(a.getStreet())
-                        .city(a.getCity())
-                        .country(a.getCountry())
-                        .addressType(a.getAddressType())
-                        .build())
-        );
-        return result;
+    private User getUserById(long userId, Long expectedVersion) {
+        User user = getUserById(userId);
+        if (expectedVersion != null && !expectedVersion.equals(user.getVersion())) {
+            throw new PreconditionFailedException(Translator.toLocale("user.version.mismatch"));
+        }
+        return user;
     }
 }
@@ -0,0 +1,200 @@
+package com.khoinguyen.core.service.impl;
+
+import com.khoinguyen.core.configuration.CacheConfig;
+import com.khoinguyen.core.exception.InvalidRequestException;
+import com.khoinguyen.core.exception.QueueFullException;
+import com.khoinguyen.core.repository.UserJdbcRepository;
+import com.khoinguyen.core.service.UserStatusService;
+import com.khoinguyen.core.util.UserStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind queue for bulk status changes.
+ * <p>
+ * Changes are coalesced per user id (the latest status wins) and written by a single flusher thread, either
+ * every app.status-queue.flush-interval or as soon as app.status-queue.batch-size users are pending, as one
+ * {@code update ... where id = any(?)} per status and batch. Callers are acknowledged only after their batch is
+ * committed; a failed batch fails the futures of every change in it, and since earlier batches of the flush may
+ * already be committed the caller should retry the whole (idempotent) request. Users pending or being written
+ * count against app.status-queue.capacity; beyond it callers wait up to app.status-queue.offer-timeout and then
+ * get a {@link QueueFullException}.
+ */
+@Slf4j
+@Service
+public class UserStatusServiceImpl implements UserStatusService, DisposableBean {
+
+    private final UserJdbcRepository userJdbcRepository;
+    private final Cache usersCache;
+    private final int batchSize;
+    private final int capacity;
+    private final long offerTimeoutNanos;
+    private final ScheduledExecutorService flusher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    // guarded by lock
+    private Map<Long, UserStatus> pending = new HashMap<>();
+    private CompletableFuture<Void> generation = new CompletableFuture<>();
+    private int inFlight;
+    private boolean flushRequested;
+    private boolean closed;
+
+    public UserStatusServiceImpl(UserJdbcRepository userJdbcRepository,
+                                 CacheManager cacheManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.status-queue.batch-size:1000}") int batchSize,
+                                 @Value("${app.status-queue.capacity:100000}") int capacity,
+                                 @Value("${app.status-queue.flush-interval:200ms}") Duration flushInterval,
+                                 @Value("${app.status-queue.offer-timeout:2s}") Duration offerTimeout) {
+        this.userJdbcRepository = userJdbcRepository;
+        this.usersCache = cacheManager.getCache(CacheConfig.USERS);
+        this.batchSize = batchSize;
+        this.capacity = capacity;
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "user-status-flusher"));
+        this.flusher.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        meterRegistry.gauge("user.status.queue.size", this, UserStatusServiceImpl::size);
+    }
+
+    @Override
+    public CompletableFuture<Void> changeStatus(Collection<Long> userIds, UserStatus status) {
+        if (userIds.size() > capacity) {
+            throw new InvalidRequestException("At most " + capacity + " users can change status in one request");
+        }
+
+        CompletableFuture<Void> acknowledgement;
+        lock.lock();
+        try {
+            long remaining = offerTimeoutNanos;
+            while (!closed && pending.size() + inFlight + newIds(userIds) > capacity) {
+                if (remaining <= 0) {
+                    throw new QueueFullException("Status change queue is full, retry later");
+                }
+                remaining = notFull.awaitNanos(remaining);
+            }
+            if (closed) {
+                throw new QueueFullException("Status change queue is shutting down");
+            }
+            userIds.forEach(id -> pending.put(id, status));
+            acknowledgement = generation;
+            if (pending.size() >= batchSize && !flushRequested) {
+                flushRequested = true;
+                flusher.execute(this::flush);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueueFullException("Interrupted while waiting for the status change queue");
+        } finally {
+            lock.unlock();
+        }
+        // callers must not be able to complete the shared future
+        return acknowledgement.copy();
+    }
+
+    private int newIds(Collection<Long> userIds) {
+        int count = 0;
+        for (Long id : userIds) {
+            if (!pending.containsKey(id)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Runs on the flusher thread only, so generations are written in the order they were queued.
+     */
+    void flush() {
+        Map<Long, UserStatus> drained;
+        CompletableFuture<Void> acknowledgement;
+        lock.lock();
+        try {
+            flushRequested = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            drained = pending;
+            acknowledgement = generation;
+            pending = new HashMap<>();
+            generation = new CompletableFuture<>();
+            inFlight += drained.size();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            write(drained);
+            acknowledgement.complete(null);
+        } catch (RuntimeException e) {
+            log.error("Status change of {} users failed", drained.size(), e);
+            acknowledgement.completeExceptionally(e);
+        } finally {
+            lock.lock();
+            try {
+                inFlight -= drained.size();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void write(Map<Long, UserStatus> changes) {
+        Map<UserStatus, List<Long>> byStatus = new EnumMap<>(UserStatus.class);
+        changes.forEach((id, status) -> byStatus.computeIfAbsent(status, s -> new ArrayList<>()).add(id));
+
+        for (Map.Entry<UserStatus, List<Long>> entry : byStatus.entrySet()) {
+            List<Long> ids = entry.getValue();
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                int updated = userJdbcRepository.updateStatus(batch, entry.getKey());
+                batch.forEach(usersCache::evict);
+                log.debug("Changed status of {} users to {} ({} requested)", updated, entry.getKey(), batch.size());
+            }
+        }
+    }
+
+    private int size() {
+        lock.lock();
+        try {
+            return pending.size() + inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // acknowledged changes are committed already; write what is still queued before the DataSource goes away
+    @Override
+    public void destroy() throws InterruptedException {
+        lock.lock();
+        try {
+            closed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(30, TimeUnit.SECONDS);
+        flush();
+    }
+}
@@ -0,0 +1,16 @@
+package com.khoinguyen.core.util;
+
+/**
+ * How a paged listing computes its total.
+ * <ul>
+ *     <li>{@code EXACT} - run a count query and return totalPage</li>
+ *     <li>{@code NONE} - fetch one extra row and return hasNext only</li>
+ *     <li>{@code APPROXIMATE} - derive totalPage from the planner's row estimate; hasNext only while there is
+ *     none</li>
+ * </ul>
+ */
+public enum CountMode {
+    EXACT,
+    NONE,
+    APPROXIMATE
+}
@@ -0,0 +1,70 @@
+package com.khoinguyen.core.util;
+
+import com.khoinguyen.core.exception.InvalidRequestException;
+import org.springframework.http.ETag;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Strong entity tags derived from the optimistic lock version of an entity, e.g. {@code "3"}, or from a digest of
+ * the versions a composite response is made of.
+ */
+public final class EntityTag {
+
+    // versions start at 0, so a tag of this value never matches
+    private static final long NO_VERSION = -1;
+
+    private EntityTag() {
+    }
+
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    public static String digest(String content) {
+        return "\"" + DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Whether an If-None-Match header matches the tag, i.e. the client's copy is current. It compares weakly, so
+     * {@code W/"3"} matches {@code "3"}.
+     */
+    public static boolean isNotModified(String ifNoneMatch, String tag) {
+        if (!StringUtils.hasText(ifNoneMatch)) {
+            return false;
+        }
+        String opaque = tag.substring(1, tag.length() - 1);
+        for (ETag candidate : ETag.parse(ifNoneMatch)) {
+            if (candidate.isWildcard() || candidate.tag().equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the version an If-Match header requires, or null when there is no header or it is {@code *}. Foreign
+     * tags map to a version no entity has. Only a single tag is accepted, since the write is conditional on one
+     * version.
+     */
+    public static Long expectedVersion(String ifMatch) {
+        if (!StringUtils.hasText(ifMatch) || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            // Tomcat weakens the tags of the responses it compresses; the version names the same user either way
+            tag = tag.substring(2);
+        }
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"") || tag.indexOf('"', 1) != tag.length() - 1) {
+            throw new InvalidRequestException("If-Match must be a single entity tag: " + ifMatch);
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return NO_VERSION;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.khoinguyen.core.util;
+
+public enum ExportFormat {
+    CSV,
+    NDJSON
+}
@@ -0,0 +1,15 @@
+package com.khoinguyen.core.util;
+
+/**
+ * Backend used for the free-text user search.
+ * <ul>
+ *     <li>{@code LIKE} - the original JPQL {@code lower(...) like} query</li>
+ *     <li>{@code TRIGRAM} - substring match served by the pg_trgm GIN indexes, ranked by similarity</li>
+ *     <li>{@code MEMORY} - candidate ids from the in-process trigram index, then a batch load by id</li>
+ * </ul>
+ */
+public enum SearchEngine {
+    LIKE,
+    TRIGRAM,
+    MEMORY
+}
@@ -0,0 +1,17 @@
+package com.khoinguyen.core.util;
+
+/**
+ * Where the outbox relay publishes user changes (app.outbox.sink).
+ * <ul>
+ *     <li>{@code NONE} - nowhere, the changes are only served by GET /user/changes</li>
+ *     <li>{@code MEMORY} - the most recent changes, kept in process for tests</li>
+ *     <li>{@code FILE} - appended to an NDJSON file</li>
+ *     <li>{@code REDIS} - added to a Redis stream, for consumers that want changes pushed</li>
+ * </ul>
+ */
+public enum UserChangeSinkType {
+    NONE,
+    MEMORY,
+    FILE,
+    REDIS
+}
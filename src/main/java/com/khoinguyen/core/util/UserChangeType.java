@@ -0,0 +1,11 @@
+package com.khoinguyen.core.util;
+
+/**
+ * Kind of a user mutation in the change feed (tbl_user_change.type).
+ */
+public enum UserChangeType {
+    CREATED,
+    UPDATED,
+    STATUS_CHANGED,
+    DELETED
+}
@@ -0,0 +1,37 @@
+-- The schema the application had before it was migrated (created by Hibernate's schema export back then), so a fresh
+-- database can run V1 onwards. Databases that predate the migrations are baselined at version 0 and skip it.
+-- Enum types are named after the Java enums, as Hibernate declares NAMED_ENUM columns on PostgreSQL.
+create type gender as enum ('MALE', 'FEMALE', 'OTHER');
+create type usertype as enum ('OWNER', 'ADMIN', 'USER');
+create type userstatus as enum ('ACTIVE', 'INACTIVE', 'NONE');
+
+create table tbl_user (
+    id bigint generated by default as identity primary key,
+    first_name varchar(255),
+    last_name varchar(255),
+    date_of_birth date,
+    gender gender,
+    phone varchar(255),
+    email varchar(255),
+    username varchar(255),
+    password varchar(255),
+    type usertype,
+    status userstatus,
+    created_at timestamp(6),
+    updated_at timestamp(6)
+);
+
+create table tbl_address (
+    id bigint generated by default as identity primary key,
+    apartment_number varchar(255),
+    floor varchar(255),
+    building varchar(255),
+    street_number varchar(255),
+    street varchar(255),
+    city varchar(255),
+    country varchar(255),
+    address_type integer,
+    user_id bigint references tbl_user (id),
+    created_at timestamp(6),
+    updated_at timestamp(6)
+);
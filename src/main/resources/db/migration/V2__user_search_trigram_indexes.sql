@@ -0,0 +1,5 @@
+-- Trigram indexes serving the case-insensitive substring search on tbl_user.
+-- Built concurrently so the migration does not block writes; Flyway runs it outside a transaction.
+create index concurrently if not exists idx_user_first_name_trgm on tbl_user using gin (lower(first_name) gin_trgm_ops);
+create index concurrently if not exists idx_user_last_name_trgm on tbl_user using gin (lower(last_name) gin_trgm_ops);
+create index concurrently if not exists idx_user_email_trgm on tbl_user using gin (lower(email) gin_trgm_ops);
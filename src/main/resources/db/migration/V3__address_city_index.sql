@@ -0,0 +1,2 @@
+-- Serves the city filter of the user search: exists (select from tbl_address where user_id = ? and lower(city) = ?).
+create index concurrently if not exists idx_address_city_user on tbl_address (lower(city), user_id);
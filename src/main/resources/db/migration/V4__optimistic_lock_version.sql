@@ -0,0 +1,3 @@
+-- Optimistic lock columns of User and Address; existing rows start at version 0 (no table rewrite on PG 11+).
+alter table tbl_user add column if not exists version bigint not null default 0;
+alter table tbl_address add column if not exists version bigint not null default 0;
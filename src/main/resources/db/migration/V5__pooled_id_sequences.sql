@@ -0,0 +1,13 @@
+-- Pooled-lo ids (PooledSequenceGenerator): every nextval on the id sequences reserves a block of
+-- ${idAllocationSize} ids. ALTER SEQUENCE only locks the sequence, and the column defaults stay in place, so instances
+-- still inserting through the default keep working during a rolling deploy; their ids fall between the blocks.
+-- To change app.id.allocation-size later, add a migration like this one.
+do $$
+declare
+    seq text;
+begin
+    foreach seq in array array[pg_get_serial_sequence('tbl_user', 'id'), pg_get_serial_sequence('tbl_address', 'id')]
+    loop
+        execute format('alter sequence %s increment by %s', seq, ${idAllocationSize});
+    end loop;
+end $$;
@@ -0,0 +1,2 @@
+-- Serves the created-at filter of the user search (createdFrom / createdTo); built without blocking writes.
+create index concurrently if not exists idx_user_created_at on tbl_user (created_at);
@@ -0,0 +1,19 @@
+-- Outbox of user mutations, written in the transaction of each change. The relay (UserChangeRelay) gives new rows
+-- a gapless position in the order they became visible; positions are the tokens of GET /user/changes and the order
+-- changes are published to the sink in. tbl_user_change_cursor keeps how far the sink has got.
+create table if not exists tbl_user_change (
+    id bigint generated always as identity primary key,
+    user_id bigint not null,
+    version bigint,
+    type varchar(32) not null,
+    created_at timestamp not null default now(),
+    position bigint unique
+);
+-- the relay's backlog stays small, so does this index
+create index if not exists idx_user_change_unnumbered on tbl_user_change (id) where position is null;
+
+create table if not exists tbl_user_change_cursor (
+    name varchar(64) primary key,
+    position bigint not null
+);
+insert into tbl_user_change_cursor (name, position) values ('sink', 0) on conflict do nothing;
@@ -0,0 +1,16 @@
+-- Serve the keyset pages of GET /user/list (cursor): a (sort column, id) index per UserSortColumn, so the row
+-- comparison (column, id) > (?, ?) is a range of it, read forwards for ascending sorts and backwards for descending
+-- ones. id alone is the primary key. (created_at, id) also serves the created-at filter, so it replaces V6's index.
+-- Built concurrently so the migration does not block writes; Flyway runs it outside a transaction.
+create index concurrently if not exists idx_user_first_name_id on tbl_user (first_name, id);
+create index concurrently if not exists idx_user_last_name_id on tbl_user (last_name, id);
+create index concurrently if not exists idx_user_email_id on tbl_user (email, id);
+create index concurrently if not exists idx_user_phone_id on tbl_user (phone, id);
+create index concurrently if not exists idx_user_username_id on tbl_user (username, id);
+create index concurrently if not exists idx_user_date_of_birth_id on tbl_user (date_of_birth, id);
+create index concurrently if not exists idx_user_gender_id on tbl_user (gender, id);
+create index concurrently if not exists idx_user_type_id on tbl_user (type, id);
+create index concurrently if not exists idx_user_status_id on tbl_user (status, id);
+create index concurrently if not exists idx_user_created_at_id on tbl_user (created_at, id);
+create index concurrently if not exists idx_user_updated_at_id on tbl_user (updated_at, id);
+drop index concurrently if exists idx_user_created_at;
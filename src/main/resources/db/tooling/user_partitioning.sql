@@ -0,0 +1,135 @@
+-- Online move of tbl_user and tbl_address to hash partitions: tbl_user on id, tbl_address on user_id so a user's
+-- addresses sit in the same remainder as the user. Lookups by id / user_id (detail, address batches, versioned
+-- updates) then touch one partition, and vacuum and index builds work per partition.
+--
+-- Not a migration: Flyway only reads db/migration, so nothing here runs on deploy. Install it by hand on the
+-- database to be moved (psql -f src/main/resources/db/tooling/user_partitioning.sql), which creates the procedures
+-- and changes nothing else; the move is then driven from psql, outside a transaction block:
+--   call user_partitioning_prepare(16);      -- partitioned copies, kept in sync by triggers from here on
+--   call user_partitioning_backfill(50000);  -- copies the existing rows, one transaction per id range; rerunnable
+--   call user_partitioning_swap();           -- brief exclusive lock: the copies take over the names and sequences
+-- The old tables remain as tbl_user_unpartitioned / tbl_address_unpartitioned until dropped by hand.
+-- Unique indexes other than the primary key cannot be kept (they would have to include the partition key), so
+-- prepare refuses to run while there are any.
+
+create or replace function user_partitioning_sync() returns trigger
+language plpgsql as $$
+declare
+    target text := tg_table_name || '_part';
+begin
+    if tg_op = 'DELETE' then
+        execute format('delete from %I where id = $1', target) using old.id;
+        return null;
+    end if;
+    if tg_table_name = 'tbl_address' then
+        if tg_op = 'UPDATE' and old.user_id is distinct from new.user_id then
+            execute format('delete from %I where id = $1', target) using old.id;
+        end if;
+        -- the copy's foreign key needs the user, which the backfill may not have reached yet
+        insert into tbl_user_part select u.* from tbl_user u where u.id = new.user_id on conflict (id) do nothing;
+    end if;
+    -- tg_argv: conflict target, column list, excluded column list
+    execute format('insert into %I select ($1).* on conflict (%s) do update set (%s) = row(%s)',
+                   target, tg_argv[0], tg_argv[1], tg_argv[2]) using new;
+    return null;
+end
+$$;
+
+create or replace procedure user_partitioning_prepare(partitions int default 16)
+language plpgsql as $$
+declare
+    t text;
+    key text;
+    primary_key text;
+    columns text;
+    excluded text;
+    idx record;
+begin
+    foreach t in array array['tbl_user', 'tbl_address'] loop
+        key := case t when 'tbl_user' then 'id' else 'user_id' end;
+        primary_key := case t when 'tbl_user' then 'id' else 'user_id, id' end;
+
+        if exists (select 1 from pg_index i where i.indrelid = t::regclass and i.indisunique and not i.indisprimary) then
+            raise exception '% has unique indexes besides its primary key, they cannot be kept on hash partitions', t;
+        end if;
+
+        execute format('create table %I (like %I including defaults including constraints) partition by hash (%I)', t || '_part', t, key);
+        execute format('alter table %I add primary key (%s)', t || '_part', primary_key);
+        for i in 0 .. partitions - 1 loop
+            execute format('create table %I partition of %I for values with (modulus %s, remainder %s)',
+                           t || '_p' || i, t || '_part', partitions, i);
+        end loop;
+
+        -- its own sequence, with the old one's increment (app.id.allocation-size); swap moves it past the old one
+        execute format('create sequence %I increment by %s owned by %I.id', t || '_part_id_seq',
+                       (select seqincrement from pg_sequence where seqrelid = pg_get_serial_sequence(t, 'id')::regclass), t || '_part');
+        execute format('alter table %I alter column id set default nextval(%L)', t || '_part', t || '_part_id_seq');
+
+        for idx in select i.indexrelid::regclass::text as name, pg_get_indexdef(i.indexrelid) as definition
+                   from pg_index i where i.indrelid = t::regclass and not i.indisprimary loop
+            execute format('create index %I on %I %s', idx.name || '_part', t || '_part', substring(idx.definition from ' USING .*'));
+        end loop;
+        if t = 'tbl_address' then
+            -- Hibernate updates and deletes addresses by id alone
+            execute 'create index tbl_address_part_id on tbl_address_part (id)';
+            execute 'alter table tbl_address_part add foreign key (user_id) references tbl_user_part (id)';
+        end if;
+
+        select string_agg(quote_ident(attname), ', ' order by attnum), string_agg('excluded.' || quote_ident(attname), ', ' order by attnum)
+        into columns, excluded
+        from pg_attribute where attrelid = t::regclass and attnum > 0 and not attisdropped;
+        execute format('create trigger %I after insert or update or delete on %I for each row execute function user_partitioning_sync(%L, %L, %L)',
+                       t || '_partitioning_sync', t, primary_key, columns, excluded);
+    end loop;
+end
+$$;
+
+create or replace procedure user_partitioning_backfill(batch int default 50000)
+language plpgsql as $$
+declare
+    t text;
+    low bigint;
+    high bigint;
+    copied bigint;
+begin
+    -- users first, so every address finds its user
+    foreach t in array array['tbl_user', 'tbl_address'] loop
+        execute format('select coalesce(min(id), 1) - 1, coalesce(max(id), 0) from %I', t) into low, high;
+        while low < high loop
+            -- for share: a row deleted meanwhile waits for this batch, and its trigger then deletes the copy too;
+            -- rows the triggers copied already are newer than this snapshot and win
+            execute format('insert into %I select * from %I where id > $1 and id <= $2 for share on conflict do nothing',
+                           t || '_part', t) using low, low + batch;
+            get diagnostics copied = row_count;
+            low := low + batch;
+            commit;
+            raise notice '%: copied % rows up to id %', t, copied, least(low, high);
+        end loop;
+    end loop;
+end
+$$;
+
+create or replace procedure user_partitioning_swap()
+language plpgsql as $$
+declare
+    t text;
+    old_sequence text;
+    next_id bigint;
+begin
+    lock table tbl_user, tbl_address in access exclusive mode;
+    foreach t in array array['tbl_user', 'tbl_address'] loop
+        execute format('drop trigger %I on %I', t || '_partitioning_sync', t);
+
+        -- past every block of ids the application already reserved from the old sequence
+        old_sequence := pg_get_serial_sequence(t, 'id');
+        execute format('select last_value + %s from %s',
+                       (select seqincrement from pg_sequence where seqrelid = old_sequence::regclass), old_sequence) into next_id;
+        perform setval((t || '_part_id_seq')::regclass, next_id, false);
+
+        execute format('alter sequence %s rename to %I', old_sequence, t || '_unpartitioned_id_seq');
+        execute format('alter table %I rename to %I', t, t || '_unpartitioned');
+        execute format('alter sequence %I rename to %I', t || '_part_id_seq', t || '_id_seq');
+        execute format('alter table %I rename to %I', t || '_part', t);
+    end loop;
+end
+$$;
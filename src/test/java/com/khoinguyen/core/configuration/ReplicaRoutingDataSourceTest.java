@@ -0,0 +1,139 @@
+package com.khoinguyen.core.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = mock(DataSource.class);
+
+    private final DataSource first = mock(DataSource.class);
+
+    private final DataSource second = mock(DataSource.class);
+
+    private final ReplicaRoutingDataSource router = new ReplicaRoutingDataSource(primary, List.of(first, second),
+            Duration.ofSeconds(1), Duration.ofSeconds(2), new SimpleMeterRegistry());
+
+    @BeforeEach
+    void primaryLsn() throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(primary.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(ReplicaRoutingDataSource.PRIMARY_LSN_QUERY)).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getString(1)).thenReturn("0/3000060");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadYourWrites.clear();
+    }
+
+    @Test
+    void readsFromThePrimaryUntilTheReplicasAreChecked() {
+        assertSame(primary, router.select());
+    }
+
+    @Test
+    void spreadsReadsOverTheReplicasWithinTheLag() throws SQLException {
+        lag(first, 0);
+        lag(second, 0.5);
+        router.check();
+
+        assertSame(first, router.select());
+        assertSame(second, router.select());
+        assertSame(first, router.select());
+    }
+
+    @Test
+    void skipsReplicasThatLagOrFail() throws SQLException {
+        lag(first, 5);
+        when(second.getConnection()).thenThrow(new SQLException("connection refused"));
+        router.check();
+
+        assertSame(primary, router.select());
+
+        lag(first, 0);
+        router.check();
+        assertSame(first, router.select());
+        assertSame(first, router.select());
+    }
+
+    @Test
+    void dropsReplicasThatStopStreaming() throws SQLException {
+        lag(first, 0);
+        lag(second, 0);
+        router.check();
+
+        // the receiver is down: the replica has replayed all it got, but cannot tell how far behind that is
+        notStreaming(first);
+        router.check();
+
+        assertSame(second, router.select());
+        assertSame(second, router.select());
+    }
+
+    @Test
+    void readsOnThePrimaryOnlyForTheWorkPinnedToIt() throws SQLException {
+        lag(first, 0);
+        lag(second, 0);
+        router.check();
+
+        assertSame(primary, ReadYourWrites.onPrimary(router::select));
+        assertSame(first, router.select());
+
+        ReadYourWrites.pin();
+        assertSame(primary, ReadYourWrites.onPrimary(router::select));
+        // the request was pinned before, so it stays pinned
+        assertSame(primary, router.select());
+    }
+
+    @Test
+    void pinnedReadsGoToThePrimary() throws SQLException {
+        lag(first, 0);
+        lag(second, 0);
+        router.check();
+
+        ReadYourWrites.pin();
+
+        assertSame(primary, router.select());
+    }
+
+    private static void lag(DataSource replica, double seconds) throws SQLException {
+        lagResult(replica, seconds, false);
+    }
+
+    // the lag query finds the replica out of recovery or not streaming
+    private static void notStreaming(DataSource replica) throws SQLException {
+        lagResult(replica, 0, true);
+    }
+
+    private static void lagResult(DataSource replica, double seconds, boolean isNull) throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(replica.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(ReplicaRoutingDataSource.LAG_QUERY)).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getDouble(1)).thenReturn(seconds);
+        when(rs.wasNull()).thenReturn(isNull);
+    }
+}
@@ -0,0 +1,44 @@
+package com.khoinguyen.core.configuration;
+
+import com.khoinguyen.core.dto.response.UserDetailResponse;
+import com.khoinguyen.core.exception.ResourceNotFoundException;
+import com.khoinguyen.core.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ServiceMetricsAspectTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final UserService target = mock(UserService.class);
+
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addAspect(new ServiceMetricsAspect(meterRegistry));
+        userService = factory.getProxy();
+    }
+
+    @Test
+    void timesCallsByMethodAndOutcome() {
+        when(target.getUser(1L)).thenReturn(new UserDetailResponse(1L, "Khoi", "Nguyen"));
+        when(target.getUser(2L)).thenThrow(new ResourceNotFoundException("User not found"));
+
+        userService.getUser(1L);
+        userService.getUser(1L);
+        assertThrows(ResourceNotFoundException.class, () -> userService.getUser(2L));
+
+        assertEquals(2, meterRegistry.get("user.service").tag("method", "getUser").tag("outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("user.service").tag("method", "getUser").tag("outcome", "not_found").timer().count());
+        assertEquals(1, meterRegistry.get("user.service.outcomes").tag("outcome", "not_found").counter().count());
+    }
+}
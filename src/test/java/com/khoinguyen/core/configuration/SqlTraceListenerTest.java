@@ -0,0 +1,117 @@
+package com.khoinguyen.core.configuration;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlTraceListenerTest {
+
+    private static final Set<String> MASKED = Set.of("email", "password");
+
+    private EmbeddedDatabase database;
+
+    private final List<String> parameters = new ArrayList<>();
+
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        SqlTraceListener tracer = new SqlTraceListener(Duration.ZERO, 0, null, MASKED);
+        dataSource = ProxyDataSourceBuilder.create(database)
+                .listener(tracer)
+                .listener(new QueryExecutionListener() {
+                    @Override
+                    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+                    }
+
+                    @Override
+                    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+                        queryInfoList.forEach(query -> parameters.add(SqlTraceListener.formatParameters(query, MASKED)));
+                    }
+                })
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SqlTrace.end();
+        database.shutdown();
+    }
+
+    @Test
+    void recordsStatementsOfTheCurrentTrace() throws SQLException {
+        SqlTrace trace = SqlTrace.begin("GET /user/list (UserController#getAllUsersWithSortBy)");
+        select("select ? as id, ? as name", 42);
+        select("select 1", null);
+        SqlTrace ended = SqlTrace.end();
+
+        assertSame(trace, ended);
+        assertEquals(2, trace.getStatementCount());
+        assertEquals("select ? as id, ? as name", trace.getStatements().get(0).sql());
+        assertEquals(List.of("[1=42, 2=null]", "[]"), parameters);
+
+        select("select 2", null);
+        assertEquals(2, trace.getStatementCount());
+    }
+
+    @Test
+    void masksParametersOfSensitiveColumns() {
+        assertEquals(Set.of(2, 4), SqlTraceListener.maskedParameters(
+                "insert into tbl_user (created_at,email,first_name,password,id) values (?,?,?,?,?)", MASKED));
+        assertEquals(Set.of(2, 4), SqlTraceListener.maskedParameters(
+                "insert into tbl_user (first_name,email) values (?,?),(?,?)", MASKED));
+        assertEquals(Set.of(1), SqlTraceListener.maskedParameters(
+                "update tbl_user set email=?,phone=?,version=? where id=? and version=?", MASKED));
+        assertEquals(Set.of(2), SqlTraceListener.maskedParameters("select id from tbl_user U where U.ID > ? and U.EMAIL <> ?", MASKED));
+        assertEquals(Set.of(2), SqlTraceListener.maskedParameters(
+                "select u.id from tbl_user u where (lower(u.first_name) like ? escape '\\' or lower(u.email) like ? escape '\\')"
+                        + " and u.status=? limit ?", MASKED));
+        // a question mark inside a literal is not a placeholder
+        assertEquals(Set.of(1), SqlTraceListener.maskedParameters("select '?' from tbl_user where password = ?", MASKED));
+        assertEquals(Set.of(), SqlTraceListener.maskedParameters("select ? as email", MASKED));
+    }
+
+    @Test
+    void explainsSelectsOnly() {
+        assertTrue(SlowQueryExplainer.isSelect("  SELECT u.id from tbl_user u"));
+        assertFalse(SlowQueryExplainer.isSelect("update tbl_user set status = ?"));
+        assertFalse(SlowQueryExplainer.isSelect("with d as (delete from tbl_user returning id) select * from d"));
+    }
+
+    private void select(String sql, Integer id) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            if (sql.contains("?")) {
+                statement.setInt(1, id);
+                statement.setNull(2, Types.VARCHAR);
+            }
+            try (ResultSet rows = statement.executeQuery()) {
+                assertTrue(rows.next());
+            }
+        }
+    }
+}
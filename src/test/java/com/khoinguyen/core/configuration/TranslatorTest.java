@@ -0,0 +1,49 @@
+package com.khoinguyen.core.configuration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TranslatorTest {
+
+    @AfterEach
+    void tearDown() {
+        LocaleContextHolder.resetLocaleContext();
+    }
+
+    @Test
+    void messagesComeFromTheTableOfTheLanguage() {
+        Translator.reload();
+
+        LocaleContextHolder.setLocale(Locale.US);
+        assertEquals("User not found", Translator.toLocale("user.not.found"));
+        LocaleContextHolder.setLocale(Locale.CANADA_FRENCH);
+        assertEquals("Utilisateur introuvable", Translator.toLocale("user.not.found"));
+    }
+
+    @Test
+    void acceptLanguageResolvesLikeLocaleLookup() {
+        LocaleResolver resolver = new LocaleResolver();
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(Locale.US, resolver.resolveLocale(request(null)));
+            assertEquals(new Locale("fr"), resolver.resolveLocale(request("fr-CA,fr;q=0.9,en;q=0.8")));
+            assertEquals(new Locale("en"), resolver.resolveLocale(request("de;q=1.0,en;q=0.5")));
+            assertNull(resolver.resolveLocale(request("de")));
+        }
+    }
+
+    private static MockHttpServletRequest request(String acceptLanguage) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (acceptLanguage != null) {
+            request.addHeader("Accept-Language", acceptLanguage);
+        }
+        return request;
+    }
+}
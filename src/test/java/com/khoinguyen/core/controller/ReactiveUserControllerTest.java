@@ -0,0 +1,86 @@
+package com.khoinguyen.core.controller;
+
+import com.khoinguyen.core.dto.response.PageResponse;
+import com.khoinguyen.core.dto.response.UserDetailResponse;
+import com.khoinguyen.core.service.ReactiveUserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class ReactiveUserControllerTest {
+
+    private final ReactiveUserService userService = mock(ReactiveUserService.class);
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new ReactiveUserController(userService)).build();
+    }
+
+    @Test
+    void ndjsonListIsWrittenBeforeTheQueryCompletes() throws Exception {
+        Sinks.Many<UserDetailResponse> rows = Sinks.many().unicast().onBackpressureBuffer();
+        when(userService.getUsers(anyInt(), anyInt(), any(), (String[]) isNull())).thenReturn(rows.asFlux());
+
+        MvcResult result = mockMvc.perform(get("/reactive/user/list").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        rows.tryEmitNext(new UserDetailResponse(1L, "Khoi", "Nguyen"));
+        // Spring MVC writes each element from its async executor
+        assertEquals(1, awaitLines(result, 1));
+        assertTrue(result.getResponse().getContentAsString().startsWith("{\"id\":1,\"firstName\":\"Khoi\""));
+
+        rows.tryEmitNext(new UserDetailResponse(2L, "Tien", "Nguyen"));
+        rows.tryEmitComplete();
+        assertEquals(2, awaitLines(result, 2));
+    }
+
+    @Test
+    void jsonListIsWrappedInPageResponse() throws Exception {
+        when(userService.getUserPage(anyInt(), anyInt(), any(), (String[]) isNull())).thenReturn(Mono.just(PageResponse.builder()
+                .pageNo(0)
+                .pageSize(20)
+                .totalPage(1)
+                .items(List.of(new UserDetailResponse(1L, "Khoi", "Nguyen")))
+                .build()));
+
+        MvcResult result = mockMvc.perform(get("/reactive/user/list-with-sort-by-multiple-columns-search")
+                        .param("search", "ngu")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"totalPage\":1")));
+    }
+
+    private static long awaitLines(MvcResult result, long expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        long lines;
+        while ((lines = result.getResponse().getContentAsString().lines().count()) < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,94 @@
+package com.khoinguyen.core.controller;
+
+import com.khoinguyen.core.dto.response.PageResponse;
+import com.khoinguyen.core.dto.response.UserDetailResponse;
+import com.khoinguyen.core.service.UserChangeService;
+import com.khoinguyen.core.service.UserExportService;
+import com.khoinguyen.core.service.UserImportService;
+import com.khoinguyen.core.service.UserService;
+import com.khoinguyen.core.service.UserStatusService;
+import com.khoinguyen.core.util.CountMode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class UserControllerTest {
+
+    private final UserService userService = mock(UserService.class);
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new UserController(userService, mock(UserImportService.class),
+                mock(UserExportService.class), mock(UserStatusService.class), mock(UserChangeService.class))).build();
+    }
+
+    @Test
+    void detailIsTaggedWithTheVersion() throws Exception {
+        when(userService.getUser(1L)).thenReturn(new UserDetailResponse(1L, "Khoi", "Nguyen", 3L));
+
+        mockMvc.perform(get("/user/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"));
+    }
+
+    @Test
+    void unchangedDetailRevalidatesAgainstTheVersionOnly() throws Exception {
+        when(userService.getUserVersion(1L)).thenReturn(3L);
+
+        mockMvc.perform(get("/user/1").header(HttpHeaders.IF_NONE_MATCH, "W/\"2\", \"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(content().string(""));
+
+        verify(userService, never()).getUser(anyLong());
+    }
+
+    @Test
+    void changedDetailIsSentAgain() throws Exception {
+        when(userService.getUserVersion(1L)).thenReturn(4L);
+        when(userService.getUser(1L)).thenReturn(new UserDetailResponse(1L, "Khoi", "Nguyen", 4L));
+
+        mockMvc.perform(get("/user/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    void unchangedPageIsNotSentAgain() throws Exception {
+        when(userService.getAllUsersWithSortBy(anyInt(), anyInt(), any(), any(), any(CountMode.class), anyBoolean()))
+                .thenReturn(PageResponse.builder()
+                        .pageNo(0)
+                        .pageSize(20)
+                        .totalPage(1)
+                        .items(List.of(new UserDetailResponse(1L, "Khoi", "Nguyen", 3L), new UserDetailResponse(2L, "Tien", "Nguyen", 0L)))
+                        .build());
+
+        String tag = mockMvc.perform(get("/user/list"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/user/list").header(HttpHeaders.IF_NONE_MATCH, tag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+}
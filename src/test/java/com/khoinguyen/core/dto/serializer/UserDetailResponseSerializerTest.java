@@ -0,0 +1,68 @@
+package com.khoinguyen.core.dto.serializer;
+
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.khoinguyen.core.dto.response.AddressResponse;
+import com.khoinguyen.core.dto.response.UserDetailResponse;
+import com.khoinguyen.core.util.Gender;
+import com.khoinguyen.core.util.UserStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserDetailResponseSerializerTest {
+
+    @JsonSerialize(using = JsonSerializer.None.class)
+    interface BeanSerialized {
+    }
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final ObjectMapper beanMapper = Jackson2ObjectMapperBuilder.json()
+            .mixIn(UserDetailResponse.class, BeanSerialized.class)
+            .mixIn(AddressResponse.class, BeanSerialized.class)
+            .build();
+
+    @Test
+    void writesWhatTheBeanSerializerWrites() throws Exception {
+        UserDetailResponse full = UserDetailResponse.builder()
+                .id(1L)
+                .firstName("Khoi")
+                .lastName("Nguyen")
+                .email("khoi@example.com")
+                .phone("0902345345")
+                .dateOfBirth(new Date(631152000000L))
+                .gender(Gender.MALE)
+                .username("khoi")
+                .type("USER")
+                .status(UserStatus.ACTIVE)
+                .version(3L)
+                .addresses(List.of(AddressResponse.builder().id(2L).city("Hanoi").addressType(1).build()))
+                .build();
+        UserDetailResponse sparse = new UserDetailResponse(4L, "Tien", null);
+
+        for (UserDetailResponse user : List.of(full, sparse)) {
+            assertEquals(beanMapper.writeValueAsString(user), mapper.writeValueAsString(user));
+        }
+    }
+
+    @Test
+    void cborCarriesTheSameDocument() throws Exception {
+        ObjectMapper cbor = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+        UserDetailResponse user = UserDetailResponse.builder()
+                .id(1L)
+                .firstName("Khoi")
+                .dateOfBirth(new Date(631152000000L))
+                .gender(Gender.FEMALE)
+                .status(UserStatus.INACTIVE)
+                .build();
+
+        assertEquals(mapper.readTree(mapper.writeValueAsBytes(user)), cbor.readTree(cbor.writeValueAsBytes(user)));
+    }
+}
@@ -0,0 +1,46 @@
+package com.khoinguyen.core.dto.validator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PhoneValidatorTest {
+
+    private final PhoneValidator validator = new PhoneValidator();
+
+    @Test
+    void acceptsTheSameNumbersAsTheFormerRegexes() {
+        List<String> samples = List.of("0902345345", "090234534", "09023453451", "090234534a",
+                "090-234-4567", "090.234.4567", "090 234 4567", "090\t234\n4567", "090-234.4567", "090_234_4567",
+                "090-234-4567 x123", "090-234-4567 ext12345", "090-234-4567\text123", "090-234-4567 x12",
+                "090-234-4567 ext123456", "090-234-4567 ex123", "090-234-4567  x123", "090.234.4567 x123",
+                "090-234-4567x123", "(090)-234-4567", "(090)234-4567", "(09a)-234-4567", "(090)-234-45678",
+                "", " ", "phone", "٠٩٠٢٣٤٥٣٤٥");
+        samples.forEach(s -> assertEquals(legacy(s), validator.isValid(s, null), s));
+    }
+
+    @Test
+    void agreesWithTheFormerRegexesOnRandomInput() {
+        Random random = new Random(42);
+        String alphabet = "0123456789-. ()xet\t";
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = 10 + random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String s = sb.toString();
+            assertEquals(legacy(s), validator.isValid(s, null), s);
+        }
+    }
+
+    private static boolean legacy(String phoneNo) {
+        return phoneNo.matches("\\d{10}")
+                || phoneNo.matches("\\d{3}[-\\.\\s]\\d{3}[-\\.\\s]\\d{4}")
+                || phoneNo.matches("\\d{3}-\\d{3}-\\d{4}\\s(x|(ext))\\d{3,5}")
+                || phoneNo.matches("\\(\\d{3}\\)-\\d{3}-\\d{4}");
+    }
+}
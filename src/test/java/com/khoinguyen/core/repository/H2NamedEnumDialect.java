@@ -0,0 +1,27 @@
+package com.khoinguyen.core.repository;
+
+import org.hibernate.boot.model.TypeContributions;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.SqlTypes;
+import org.hibernate.type.descriptor.jdbc.EnumJdbcType;
+import org.hibernate.type.descriptor.sql.internal.NativeEnumDdlTypeImpl;
+
+/**
+ * Binds the PostgreSQL NAMED_ENUM columns to H2's native ENUM type so entity slices can run on H2.
+ */
+public class H2NamedEnumDialect extends H2Dialect {
+
+    @Override
+    public void contributeTypes(TypeContributions typeContributions, ServiceRegistry serviceRegistry) {
+        super.contributeTypes(typeContributions, serviceRegistry);
+        typeContributions.getTypeConfiguration().getJdbcTypeRegistry().addDescriptor(SqlTypes.NAMED_ENUM, EnumJdbcType.INSTANCE);
+    }
+
+    // the temporary table Hibernate prepares for insert-select of sequence-generated entities declares these columns
+    @Override
+    protected void registerColumnTypes(TypeContributions typeContributions, ServiceRegistry serviceRegistry) {
+        super.registerColumnTypes(typeContributions, serviceRegistry);
+        typeContributions.getTypeConfiguration().getDdlTypeRegistry().addDescriptor(new NativeEnumDdlTypeImpl(this));
+    }
+}
@@ -0,0 +1,57 @@
+package com.khoinguyen.core.repository;
+
+import com.khoinguyen.core.exception.InvalidRequestException;
+import com.khoinguyen.core.model.User;
+import com.khoinguyen.core.util.UserStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetCursorTest {
+
+    @Test
+    void tieBreakerIsAppendedOnce() {
+        List<Sort.Order> orders = KeysetCursor.withTieBreaker(List.of(Sort.Order.desc("lastName")));
+        assertEquals(List.of(Sort.Order.desc("lastName"), Sort.Order.desc("id")), orders);
+
+        List<Sort.Order> withId = KeysetCursor.withTieBreaker(List.of(Sort.Order.desc("id"), Sort.Order.asc("email")));
+        assertEquals(List.of(Sort.Order.desc("id")), withId);
+    }
+
+    @Test
+    void roundTripsValuesIncludingNulls() {
+        User user = User.builder()
+                .firstName("Nguyen, Van\nA")
+                .dateOfBirth(new Date(946684800000L))
+                .status(UserStatus.ACTIVE)
+                .build();
+        user.setId(42L);
+
+        List<Sort.Order> orders = KeysetCursor.withTieBreaker(List.of(
+                Sort.Order.asc("firstName"), Sort.Order.desc("lastName"),
+                Sort.Order.asc("dateOfBirth"), Sort.Order.asc("status")));
+
+        String cursor = KeysetCursor.encode(orders, user);
+
+        assertEquals(Arrays.asList("Nguyen, Van\nA", null, new Date(946684800000L), UserStatus.ACTIVE, 42L),
+                KeysetCursor.decode(orders, cursor));
+    }
+
+    @Test
+    void rejectsCursorIssuedForAnotherSort() {
+        User user = User.builder().firstName("a").build();
+        user.setId(1L);
+        String cursor = KeysetCursor.encode(KeysetCursor.withTieBreaker(List.of(Sort.Order.asc("firstName"))), user);
+
+        List<Sort.Order> other = KeysetCursor.withTieBreaker(List.of(Sort.Order.desc("firstName")));
+        assertThrows(InvalidRequestException.class, () -> KeysetCursor.decode(other, cursor));
+        assertThrows(InvalidRequestException.class, () -> KeysetCursor.decode(other, "not a cursor!"));
+        assertThrows(InvalidRequestException.class, () -> KeysetCursor.withTieBreaker(List.of(Sort.Order.asc("password"))));
+    }
+}
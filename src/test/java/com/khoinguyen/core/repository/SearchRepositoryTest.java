@@ -0,0 +1,234 @@
+package com.khoinguyen.core.repository;
+
+import com.khoinguyen.core.dto.request.UserFilter;
+import com.khoinguyen.core.dto.response.PageResponse;
+import com.khoinguyen.core.dto.response.UserDetailResponse;
+import com.khoinguyen.core.exception.InvalidRequestException;
+import com.khoinguyen.core.model.Address;
+import com.khoinguyen.core.model.User;
+import com.khoinguyen.core.util.CountMode;
+import com.khoinguyen.core.util.Gender;
+import com.khoinguyen.core.util.UserStatus;
+import com.khoinguyen.core.util.UserType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.config.location=optional:classpath:/jpa-test/",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.database-platform=com.khoinguyen.core.repository.H2NamedEnumDialect",
+        "spring.sql.init.schema-locations=classpath:jpa-test/schema.sql",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.khoinguyen.core.repository.RecordingStatementInspector"
+})
+@Import({SearchRepository.class, UserJdbcRepository.class, SearchRepositoryTest.Config.class})
+class SearchRepositoryTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @MockBean
+    private UserCountEstimator countEstimator;
+
+    @MockBean
+    private UserSearchIndex searchIndex;
+
+    @Autowired
+    private SearchRepository searchRepository;
+
+    @Autowired
+    private UserJdbcRepository userJdbcRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        persist("An", "Nguyen", UserStatus.ACTIVE, LocalDate.of(1990, 1, 1), "Hanoi", "Hanoi");
+        persist("Binh", "Nguyen", UserStatus.INACTIVE, LocalDate.of(1991, 1, 1), "Hanoi");
+        persist("Chi", "Tran", UserStatus.ACTIVE, LocalDate.of(1992, 1, 1), "Saigon");
+        persist("Dung", "Nguyen", UserStatus.ACTIVE, LocalDate.of(2001, 1, 1), "Hanoi");
+        persist("Em", "Le", UserStatus.ACTIVE, LocalDate.of(1993, 1, 1), "Hue");
+        entityManager.flush();
+        entityManager.clear();
+        RecordingStatementInspector.SQL.clear();
+    }
+
+    @Test
+    void combinesFilters() {
+        UserFilter filter = UserFilter.builder()
+                .search("NGUY")
+                .status(UserStatus.ACTIVE)
+                .dateOfBirthTo(LocalDate.of(2000, 12, 31))
+                .city("hanoi")
+                .build();
+
+        PageResponse<?> page = searchRepository.getAllUsersWithSortByMultipleColumnAndSearch(0, 10, filter, "firstName:asc", CountMode.EXACT);
+
+        assertEquals(List.of("An"), firstNames(page));
+        assertEquals(1, page.getTotalPage());
+    }
+
+    @Test
+    void pageNoIsAPageIndex() {
+        UserFilter filter = UserFilter.builder().status(UserStatus.ACTIVE).build();
+
+        PageResponse<?> page = searchRepository.getAllUsersWithSortByMultipleColumnAndSearch(1, 2, filter, "firstName:asc", CountMode.NONE);
+
+        assertEquals(List.of("Dung", "Em"), firstNames(page));
+        assertFalse(page.getHasNext());
+    }
+
+    @Test
+    void filtersByCreationDay() {
+        LocalDate today = LocalDate.now();
+
+        PageResponse<?> createdToday = searchRepository.getAllUsersWithSortByMultipleColumnAndSearch(0, 10,
+                UserFilter.builder().createdFrom(today).createdTo(today).build(), "firstName:asc", CountMode.EXACT);
+        PageResponse<?> createdBefore = searchRepository.getAllUsersWithSortByMultipleColumnAndSearch(0, 10,
+                UserFilter.builder().createdTo(today.minusDays(1)).build(), "firstName:asc", CountMode.EXACT);
+
+        assertEquals(List.of("An", "Binh", "Chi", "Dung", "Em"), firstNames(createdToday));
+        assertEquals(List.of(), firstNames(createdBefore));
+    }
+
+    @Test
+    void bindsValuesInsteadOfRenderingThem() {
+        searchRepository.getAllUsersWithSortByMultipleColumnAndSearch(0, 10,
+                UserFilter.builder().search("an").city("Hanoi").build(), "lastName:desc", CountMode.EXACT);
+        List<String> first = List.copyOf(RecordingStatementInspector.SQL);
+        RecordingStatementInspector.SQL.clear();
+
+        searchRepository.getAllUsersWithSortByMultipleColumnAndSearch(3, 20,
+                UserFilter.builder().search("tran").city("Hue").build(), "lastName:desc", CountMode.EXACT);
+
+        assertEquals(first, RecordingStatementInspector.SQL);
+        assertFalse(first.stream().anyMatch(sql -> sql.contains("an%") || sql.toLowerCase().contains("hanoi")));
+    }
+
+    @Test
+    void keysetPagesRowsSharingOneMicrosecondTimestamp() {
+        // what one bulk UPDATE ... now() leaves behind
+        entityManager.createNativeQuery("update tbl_user set updated_at = timestamp '2024-05-01 10:00:00.123456'").executeUpdate();
+        entityManager.clear();
+
+        assertEquals(List.of("Em", "Dung", "Chi", "Binh", "An"), keysetPages(List.of(Sort.Order.desc("updatedAt")), 2));
+    }
+
+    @Test
+    void keysetSeeksWithARowComparisonAndReadsTheNullsLast() {
+        entityManager.createNativeQuery("update tbl_user set date_of_birth = null where first_name in ('Binh', 'Em')").executeUpdate();
+        entityManager.clear();
+
+        assertEquals(List.of("An", "Chi", "Dung", "Binh", "Em"), keysetPages(List.of(Sort.Order.asc("dateOfBirth")), 2));
+        assertEquals(List.of("Em", "Binh", "Dung", "Chi", "An"), keysetPages(List.of(Sort.Order.desc("dateOfBirth")), 2));
+        assertEquals(List.of("An", "Chi", "Dung", "Em", "Binh"), keysetPages(List.of(Sort.Order.asc("status")), 2));
+
+        List<Sort.Order> orders = KeysetCursor.withTieBreaker(List.of(Sort.Order.desc("status")));
+        RecordingStatementInspector.SQL.clear();
+        searchRepository.getUsersAfterCursor(orders, List.of(UserStatus.INACTIVE, 2L), 10);
+        assertEquals(1, RecordingStatementInspector.SQL.size());
+        assertTrue(RecordingStatementInspector.SQL.get(0).contains("(u1_0.status,u1_0.id)<(?,?)"), RecordingStatementInspector.SQL.get(0));
+    }
+
+    @Test
+    void countsUpToALimit() {
+        assertEquals(3, userRepository.countUpTo(3));
+        assertEquals(5, userRepository.countUpTo(10));
+    }
+
+    @Test
+    void exportStreamsTheUsersTheSearchFinds() {
+        List<UserFilter> filters = List.of(
+                UserFilter.builder().status(UserStatus.INACTIVE).build(),
+                UserFilter.builder().city("HANOI").dateOfBirthFrom(LocalDate.of(1991, 1, 1)).build(),
+                UserFilter.builder().search("nguy").type(UserType.USER).gender(Gender.MALE).dateOfBirthTo(LocalDate.of(2000, 12, 31)).build(),
+                UserFilter.builder().createdFrom(LocalDate.now()).createdTo(LocalDate.now()).city("Hue").build(),
+                UserFilter.builder().gender(Gender.FEMALE).build());
+
+        for (UserFilter filter : filters) {
+            List<String> exported = new ArrayList<>();
+            userJdbcRepository.streamUsers(filter, false, 100, rs -> {
+                exported.add(rs.getString("firstName"));
+            });
+            // ids follow the first names here, so the export's id order is the search's name order
+            assertEquals(firstNames(searchRepository.getAllUsersWithSortByMultipleColumnAndSearch(0, 10, filter, "firstName:asc", CountMode.NONE)),
+                    exported);
+        }
+    }
+
+    @Test
+    void rejectsColumnsOutsideTheWhitelist() {
+        UserFilter filter = UserFilter.builder().build();
+
+        assertThrows(InvalidRequestException.class, () -> searchRepository.getAllUsersWithSortByMultipleColumnAndSearch(0, 10,
+                filter, "password:asc", CountMode.NONE));
+        assertThrows(InvalidRequestException.class, () -> searchRepository.getAllUsersWithSortByMultipleColumnAndSearch(0, 10,
+                filter, "id:asc;drop table tbl_user", CountMode.NONE));
+    }
+
+    private List<String> keysetPages(List<Sort.Order> sort, int pageSize) {
+        List<Sort.Order> orders = KeysetCursor.withTieBreaker(sort);
+        List<String> seen = new ArrayList<>();
+        List<Object> after = null;
+        for (int page = 0; page < 5; page++) {
+            List<User> users = searchRepository.getUsersAfterCursor(orders, after, pageSize);
+            if (users.isEmpty()) {
+                break;
+            }
+            users.forEach(u -> seen.add(u.getFirstName()));
+            after = KeysetCursor.decode(orders, KeysetCursor.encode(orders, users.get(users.size() - 1)));
+        }
+        return seen;
+    }
+
+    private void persist(String firstName, String lastName, UserStatus status, LocalDate dateOfBirth, String... cities) {
+        User user = User.builder()
+                .firstName(firstName)
+                .lastName(lastName)
+                .email(firstName.toLowerCase() + "@example.com")
+                .dateOfBirth(Date.valueOf(dateOfBirth))
+                .gender(Gender.MALE)
+                .username(firstName.toLowerCase())
+                .password("secret")
+                .type(UserType.USER)
+                .status(status)
+                .build();
+        for (String city : cities) {
+            user.saveAddress(Address.builder().city(city).addressType(1).build());
+        }
+        entityManager.persist(user);
+    }
+
+    private static List<String> firstNames(PageResponse<?> page) {
+        return ((List<?>) page.getItems()).stream().map(u -> ((UserDetailResponse) u).getFirstName()).toList();
+    }
+}
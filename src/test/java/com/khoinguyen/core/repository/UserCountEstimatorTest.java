@@ -0,0 +1,48 @@
+package com.khoinguyen.core.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserCountEstimatorTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    private final UserCountEstimator estimator = new UserCountEstimator(userRepository);
+
+    @BeforeEach
+    void setUp() {
+        // expired as soon as it is taken, so every call loads again
+        ReflectionTestUtils.setField(estimator, "ttl", Duration.ofNanos(-1));
+        ReflectionTestUtils.setField(estimator, "exactCountCap", 1_000L);
+    }
+
+    @Test
+    void readsThePlannerEstimateWithoutCounting() {
+        when(userRepository.estimateCount()).thenReturn(5_000_000L);
+
+        assertEquals(OptionalLong.of(5_000_000L), estimator.estimate());
+        verify(userRepository, never()).countUpTo(anyLong());
+    }
+
+    @Test
+    void countsOnlyUpToTheCapWithoutStatistics() {
+        when(userRepository.estimateCount()).thenReturn(-1L);
+        when(userRepository.countUpTo(1_001L)).thenReturn(42L);
+        assertEquals(OptionalLong.of(42L), estimator.estimate());
+
+        when(userRepository.countUpTo(1_001L)).thenReturn(1_001L);
+        assertEquals(OptionalLong.empty(), estimator.estimate());
+        verify(userRepository, never()).count();
+    }
+}
@@ -0,0 +1,81 @@
+package com.khoinguyen.core.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs db/tooling/user_partitioning.sql against a real Postgres, migrated by the application's migrations; skipped
+ * where Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class UserPartitioningToolingTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void movesUsersAndAddressesToHashPartitionsKeepingEveryRowAndTheForeignKey() throws IOException {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        Flyway.configure().dataSource(dataSource).placeholders(Map.of("idAllocationSize", "50")).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // sent as one statement, so the dollar-quoted bodies stay whole
+        jdbcTemplate.execute(new ClassPathResource("db/tooling/user_partitioning.sql").getContentAsString(StandardCharsets.UTF_8));
+
+        jdbcTemplate.update("insert into tbl_user (first_name, last_name, email, status, created_at)" +
+                " select 'User', 'N' || g, 'u' || g || '@example.com', 'ACTIVE', now() from generate_series(1, 30) g");
+        jdbcTemplate.update("insert into tbl_address (city, user_id) select 'Hanoi', u.id from tbl_user u, generate_series(1, 2)");
+
+        jdbcTemplate.execute("call user_partitioning_prepare(4)");
+        // writes between prepare and swap reach the copies through the triggers, before and after the backfill
+        jdbcTemplate.update("update tbl_user set last_name = 'Pham' where last_name = 'N1'");
+        jdbcTemplate.update("delete from tbl_address where id = (select min(a.id) from tbl_address a join tbl_user u on u.id = a.user_id where u.last_name = 'N2')");
+        jdbcTemplate.update("delete from tbl_address where user_id = (select id from tbl_user where last_name = 'N3')");
+        jdbcTemplate.update("delete from tbl_user where last_name = 'N3'");
+        // ids are 50 apart (pooled sequences), so a batch of 100 copies two users per transaction
+        jdbcTemplate.execute("call user_partitioning_backfill(100)");
+        jdbcTemplate.update("insert into tbl_user (first_name, last_name, status) values ('Binh', 'Tran', 'ACTIVE')");
+        jdbcTemplate.update("insert into tbl_address (city, user_id) select 'Hue', id from tbl_user where last_name = 'Tran'");
+        jdbcTemplate.execute("call user_partitioning_swap()");
+
+        assertEquals("p", jdbcTemplate.queryForObject("select cast(relkind as text) from pg_class where oid = cast('tbl_user' as regclass)", String.class));
+        assertEquals("p", jdbcTemplate.queryForObject("select cast(relkind as text) from pg_class where oid = cast('tbl_address' as regclass)", String.class));
+        assertEquals(30, count("select count(*) from tbl_user"));
+        assertEquals(58, count("select count(*) from tbl_address"));
+        for (String table : new String[]{"tbl_user", "tbl_address"}) {
+            assertEquals(0, count("select count(*) from (select * from " + table + " except select * from " + table + "_unpartitioned) d"), table);
+            assertEquals(0, count("select count(*) from (select * from " + table + "_unpartitioned except select * from " + table + ") d"), table);
+        }
+        assertEquals(1, count("select count(*) from tbl_user where last_name = 'Pham'"));
+
+        assertEquals(1, count("select count(*) from pg_constraint where contype = 'f'" +
+                " and conrelid = cast('tbl_address' as regclass) and confrelid = cast('tbl_user' as regclass)"));
+        assertEquals(0, count("select count(*) from tbl_address a where not exists (select 1 from tbl_user u where u.id = a.user_id)"));
+        assertThrows(DataIntegrityViolationException.class,
+                () -> jdbcTemplate.update("insert into tbl_address (city, user_id) values ('Hue', -1)"));
+
+        // the sequences moved past every id handed out before the swap
+        jdbcTemplate.update("insert into tbl_user (first_name, status) values ('Chi', 'ACTIVE')");
+        assertTrue(count("select id from tbl_user where first_name = 'Chi'") > count("select max(id) from tbl_user_unpartitioned"));
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
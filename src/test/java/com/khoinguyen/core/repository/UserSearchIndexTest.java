@@ -0,0 +1,92 @@
+package com.khoinguyen.core.repository;
+
+import com.khoinguyen.core.util.SearchEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserSearchIndexTest {
+
+    private EmbeddedDatabase database;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private UserSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("jpa-test/schema.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.update("insert into tbl_user (id, first_name, last_name, email) values (1, 'An', 'Nguyen', 'an@example.com')");
+        index = new UserSearchIndex(database, new UserChangeRepository(jdbcTemplate), new DataSourceTransactionManager(database),
+                SearchEngine.MEMORY, 1_000, 100, Duration.ofSeconds(1));
+        index.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.destroy();
+        database.shutdown();
+    }
+
+    @Test
+    void findsUsersByTrigramsOfEveryField() {
+        index.add(new UserSearchIndex.Document(2, "Binh", "Tran", "binh@example.vn"));
+
+        assertArrayEquals(new int[]{1}, index.candidates("NGUY"));
+        assertArrayEquals(new int[]{2}, index.candidates("example.vn"));
+        assertArrayEquals(new int[]{1, 2}, index.candidates("@example"));
+        assertArrayEquals(new int[0], index.candidates("nguyen@"));
+        // too short to have a trigram
+        assertNull(index.candidates("an"));
+    }
+
+    @Test
+    void replaceAndRemoveDropTheOldFields() {
+        UserSearchIndex.Document before = new UserSearchIndex.Document(1, "An", "Nguyen", "an@example.com");
+        UserSearchIndex.Document after = new UserSearchIndex.Document(1, "An", "Le", "an@example.com");
+
+        index.replace(before, after);
+        assertArrayEquals(new int[0], index.candidates("nguyen"));
+        assertArrayEquals(new int[]{1}, index.candidates("example"));
+
+        index.remove(after);
+        assertArrayEquals(new int[0], index.candidates("example"));
+    }
+
+    @Test
+    void followsChangesMadeElsewhere() {
+        // another instance inserts a user and renames one, the relay numbers both changes
+        jdbcTemplate.update("insert into tbl_user (id, first_name, last_name, email) values (2, 'Binh', 'Tran', 'binh@mail.vn')");
+        jdbcTemplate.update("update tbl_user set last_name = 'Pham' where id = 1");
+        jdbcTemplate.update("insert into tbl_user_change (user_id, version, type, position) values (2, 0, 'CREATED', 1), (1, 1, 'UPDATED', 2)");
+
+        index.follow();
+
+        assertArrayEquals(new int[]{2}, index.candidates("tran"));
+        assertArrayEquals(new int[]{1}, index.candidates("pham"));
+        // the old name stays a candidate until the database re-check drops it
+        assertArrayEquals(new int[]{1}, index.candidates("nguyen"));
+    }
+
+    @Test
+    void disablesItselfInsteadOfFailingOnIdsPastTheIntRange() {
+        index.add(new UserSearchIndex.Document(Integer.MAX_VALUE + 1L, "Chi", "Le", "chi@example.com"));
+
+        assertNull(index.candidates("example"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.khoinguyen.core.service.impl;
+
+import com.khoinguyen.core.dto.response.UserChangeResponse;
+import com.khoinguyen.core.repository.UserChangeRepository;
+import com.khoinguyen.core.service.UserChangeSink;
+import com.khoinguyen.core.util.UserChangeType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserChangeRelayTest {
+
+    private final UserChangeRepository userChangeRepository = mock(UserChangeRepository.class);
+
+    private UserChangeRelay relay;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        relay.destroy();
+    }
+
+    @Test
+    void publishesNumberedChangesInBatchesAndMovesTheSinkPosition() {
+        MemoryUserChangeSink sink = new MemoryUserChangeSink(10);
+        relay = relay(sink);
+        when(userChangeRepository.tryLockRelay()).thenReturn(true);
+        when(userChangeRepository.number(2)).thenReturn(2, 1);
+        when(userChangeRepository.sinkPosition()).thenReturn(0L, 2L, 3L);
+        when(userChangeRepository.findAfter(0, 2)).thenReturn(List.of(change(1), change(2)));
+        when(userChangeRepository.findAfter(2, 2)).thenReturn(List.of(change(3)));
+
+        relay.relay();
+
+        verify(userChangeRepository, times(2)).number(2);
+        assertEquals(List.of(1L, 2L, 3L), sink.getChanges().stream().map(UserChangeResponse::getPosition).toList());
+        verify(userChangeRepository).setSinkPosition(2);
+        verify(userChangeRepository).setSinkPosition(3);
+    }
+
+    @Test
+    void failingSinkKeepsItsPositionButNotTheFeed() {
+        relay = relay(changes -> {
+            throw new IllegalStateException("broker down");
+        });
+        when(userChangeRepository.tryLockRelay()).thenReturn(true);
+        when(userChangeRepository.number(2)).thenReturn(1);
+        when(userChangeRepository.findAfter(0, 2)).thenReturn(List.of(change(1)));
+
+        assertThrows(IllegalStateException.class, relay::relay);
+
+        verify(userChangeRepository).number(2);
+        verify(userChangeRepository, never()).setSinkPosition(anyLong());
+    }
+
+    @Test
+    void skipsTheRunWhileAnotherRelayHoldsTheLock() {
+        relay = relay(new MemoryUserChangeSink(10));
+        when(userChangeRepository.tryLockRelay()).thenReturn(false);
+
+        relay.relay();
+
+        verify(userChangeRepository, never()).number(anyInt());
+        verify(userChangeRepository, never()).findAfter(anyLong(), anyInt());
+    }
+
+    // the schedule only starts with the application, relay() is called directly
+    private UserChangeRelay relay(UserChangeSink sink) {
+        return new UserChangeRelay(userChangeRepository, sink, mock(PlatformTransactionManager.class), new SimpleMeterRegistry(),
+                2, Duration.ofHours(1), Duration.ofDays(7));
+    }
+
+    private static UserChangeResponse change(long position) {
+        return UserChangeResponse.builder()
+                .position(position)
+                .userId(position * 10)
+                .version(0L)
+                .type(UserChangeType.CREATED)
+                .occurredAt(new Date())
+                .build();
+    }
+}
@@ -0,0 +1,68 @@
+package com.khoinguyen.core.service.impl;
+
+import com.khoinguyen.core.dto.response.PageResponse;
+import com.khoinguyen.core.dto.response.UserChangeResponse;
+import com.khoinguyen.core.exception.ChangeTokenExpiredException;
+import com.khoinguyen.core.exception.InvalidRequestException;
+import com.khoinguyen.core.repository.UserChangeRepository;
+import com.khoinguyen.core.util.UserChangeType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserChangeServiceImplTest {
+
+    private final UserChangeRepository userChangeRepository = mock(UserChangeRepository.class);
+
+    private final UserChangeServiceImpl userChangeService = new UserChangeServiceImpl(userChangeRepository);
+
+    @Test
+    void pagesFromTheToken() {
+        when(userChangeRepository.findAfter(4, 3)).thenReturn(List.of(change(5), change(6), change(7)));
+        when(userChangeRepository.findAfter(6, 3)).thenReturn(List.of(change(7)));
+
+        PageResponse<?> first = userChangeService.getChanges("4", 2);
+        assertTrue(first.getHasNext());
+        assertEquals("6", first.getNextCursor());
+        assertEquals(2, ((List<?>) first.getItems()).size());
+
+        PageResponse<?> last = userChangeService.getChanges(first.getNextCursor(), 2);
+        assertFalse(last.getHasNext());
+        assertEquals("7", last.getNextCursor());
+    }
+
+    @Test
+    void anEmptyPageKeepsTheToken() {
+        when(userChangeRepository.latestPosition()).thenReturn(9L);
+
+        assertEquals("9", userChangeService.getChanges("now", 10).getNextCursor());
+        assertEquals("9", userChangeService.getChanges("9", 10).getNextCursor());
+    }
+
+    @Test
+    void rejectsTokensWhoseChangesWerePurged() {
+        // 5 to 7 are gone, 8 is the oldest change kept
+        when(userChangeRepository.findAfter(4, 11)).thenReturn(List.of(change(8), change(9)));
+
+        assertThrows(ChangeTokenExpiredException.class, () -> userChangeService.getChanges("4", 10));
+        assertThrows(InvalidRequestException.class, () -> userChangeService.getChanges("-1", 10));
+    }
+
+    private static UserChangeResponse change(long position) {
+        return UserChangeResponse.builder()
+                .position(position)
+                .userId(1)
+                .version(position)
+                .type(UserChangeType.UPDATED)
+                .occurredAt(new Date())
+                .build();
+    }
+}
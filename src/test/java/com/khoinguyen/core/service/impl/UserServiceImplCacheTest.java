@@ -0,0 +1,210 @@
+package com.khoinguyen.core.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khoinguyen.core.configuration.CacheConfig;
+import com.khoinguyen.core.dto.request.AddressDTO;
+import com.khoinguyen.core.dto.request.UserRequestDTO;
+import com.khoinguyen.core.model.User;
+import com.khoinguyen.core.repository.AddressRepository;
+import com.khoinguyen.core.repository.SearchRepository;
+import com.khoinguyen.core.repository.UserChangeRepository;
+import com.khoinguyen.core.repository.UserCountEstimator;
+import com.khoinguyen.core.repository.UserDetailProjection;
+import com.khoinguyen.core.repository.UserRepository;
+import com.khoinguyen.core.repository.UserSearchIndex;
+import com.khoinguyen.core.service.UserService;
+import com.khoinguyen.core.util.UserStatus;
+import com.khoinguyen.core.util.UserType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig
+class UserServiceImplCacheTest {
+
+    @Configuration
+    @Import({CacheConfig.class, UserServiceImpl.class})
+    static class Config {
+        @Bean
+        CacheManager cacheManager() {
+            return new CaffeineCacheManager(CacheConfig.USERS);
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+
+        @Bean
+        LocalValidatorFactoryBean validator() {
+            return new LocalValidatorFactoryBean();
+        }
+    }
+
+    @MockBean
+    private UserRepository userRepository;
+
+    @MockBean
+    private AddressRepository addressRepository;
+
+    @MockBean
+    private SearchRepository searchRepository;
+
+    @MockBean
+    private UserCountEstimator countEstimator;
+
+    @MockBean
+    private UserSearchIndex searchIndex;
+
+    @MockBean
+    private UserChangeRepository userChangeRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(CacheConfig.USERS).clear();
+
+        user = User.builder()
+                .firstName("Khoi")
+                .lastName("Nguyen")
+                .email("khoi@example.com")
+                .type(UserType.USER)
+                .status(UserStatus.ACTIVE)
+                .build();
+        user.setId(1L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.findProjectedById(1L))
+                .thenAnswer(invocation -> Optional.of(projectionFactory.createProjection(UserDetailProjection.class, user)));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void repeatedReadsAreServedFromCache() {
+        userService.getUser(1L);
+        userService.getUser(1L);
+
+        verify(userRepository, times(1)).findProjectedById(1L);
+    }
+
+    @Test
+    void readAfterUpdateIsNotStale() {
+        assertEquals("Khoi", userService.getUser(1L).getFirstName());
+
+        userService.updateUser(1L, request("Tien"), null);
+
+        assertEquals("Tien", userService.getUser(1L).getFirstName());
+        assertEquals("ADMIN", userService.getUser(1L).getType());
+    }
+
+    @Test
+    void readRacingTheCommitDoesNotCacheTheOldRow() throws Exception {
+        // other transactions see the row as committed, the writing one sees its own change
+        User committed = User.builder().firstName("Khoi").lastName("Nguyen").type(UserType.USER).status(UserStatus.ACTIVE).build();
+        committed.setId(1L);
+        when(userRepository.findProjectedById(1L))
+                .thenAnswer(invocation -> Optional.of(projectionFactory.createProjection(UserDetailProjection.class, committed)));
+        userService.getUser(1L);
+
+        new TransactionTemplate(new NoOpTransactionManager()).executeWithoutResult(status -> {
+            userService.updateUser(1L, request("Tien"), null);
+            // a read on another thread after the evict, before the commit
+            try {
+                CompletableFuture.runAsync(() -> userService.getUser(1L)).get();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            committed.setFirstName("Tien");
+        });
+
+        assertEquals("Tien", userService.getUser(1L).getFirstName());
+    }
+
+    @Test
+    void readAfterStatusChangeIsNotStale() {
+        assertEquals(UserStatus.ACTIVE, userService.getUser(1L).getStatus());
+        when(userRepository.updateStatus(1L, UserStatus.INACTIVE)).thenAnswer(invocation -> {
+            user.setStatus(UserStatus.INACTIVE);
+            return 1;
+        });
+
+        userService.changeStatus(1L, UserStatus.INACTIVE, null);
+
+        assertEquals(UserStatus.INACTIVE, userService.getUser(1L).getStatus());
+    }
+
+    @Test
+    void readAfterDeleteGoesToRepository() {
+        userService.getUser(1L);
+
+        userService.deleteUser(1L);
+        userService.getUser(1L);
+
+        verify(userRepository, times(2)).findProjectedById(1L);
+    }
+
+    private static UserRequestDTO request(String firstName) {
+        return UserRequestDTO.builder()
+                .firstName(firstName)
+                .lastName("Nguyen")
+                .email("khoi@example.com")
+                .dateOfBirth(new Date())
+                .username("khoi")
+                .password("secret")
+                .type("admin")
+                .status(UserStatus.ACTIVE)
+                .addresses(Set.of(AddressDTO.builder().city("Hanoi").build()))
+                .build();
+    }
+
+    // transaction synchronization without a resource, enough to run the commit callbacks
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
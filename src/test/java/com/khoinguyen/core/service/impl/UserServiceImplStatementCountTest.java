@@ -0,0 +1,290 @@
+package com.khoinguyen.core.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khoinguyen.core.configuration.Translator;
+import com.khoinguyen.core.dto.request.AddressDTO;
+import com.khoinguyen.core.dto.request.UserRequestDTO;
+import com.khoinguyen.core.dto.response.PageResponse;
+import com.khoinguyen.core.dto.response.UserDetailResponse;
+import com.khoinguyen.core.exception.PreconditionFailedException;
+import com.khoinguyen.core.model.Address;
+import com.khoinguyen.core.model.User;
+import com.khoinguyen.core.repository.RecordingStatementInspector;
+import com.khoinguyen.core.repository.SearchRepository;
+import com.khoinguyen.core.repository.UserChangeRepository;
+import com.khoinguyen.core.repository.UserCountEstimator;
+import com.khoinguyen.core.repository.UserSearchIndex;
+import com.khoinguyen.core.service.UserService;
+import com.khoinguyen.core.util.CountMode;
+import com.khoinguyen.core.util.Gender;
+import com.khoinguyen.core.util.UserStatus;
+import com.khoinguyen.core.util.UserType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolationException;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.transaction.TestTransaction;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest(properties = {
+        "spring.config.location=optional:classpath:/jpa-test/",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.database-platform=com.khoinguyen.core.repository.H2NamedEnumDialect",
+        "spring.sql.init.schema-locations=classpath:jpa-test/schema.sql",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.khoinguyen.core.repository.RecordingStatementInspector"
+})
+@Import({UserServiceImpl.class, UserChangeRepository.class, Translator.class, UserServiceImplStatementCountTest.Config.class})
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, ValidationAutoConfiguration.class})
+class UserServiceImplStatementCountTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        SimpleMeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        ResourceBundleMessageSource messageSource() {
+            ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+            messageSource.setBasename("messages");
+            return messageSource;
+        }
+    }
+
+    private static final int USERS = 30;
+
+    private static final int PAGE_SIZE = 10;
+
+    @MockBean
+    private SearchRepository searchRepository;
+
+    @MockBean
+    private UserCountEstimator countEstimator;
+
+    @MockBean
+    private UserSearchIndex searchIndex;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < USERS; i++) {
+            User user = User.builder()
+                    .firstName("First" + i)
+                    .lastName("Last" + i)
+                    .email("user" + i + "@example.com")
+                    .phone(String.format("09000000%02d", i))
+                    .dateOfBirth(new Date())
+                    .gender(Gender.MALE)
+                    .username("user" + i)
+                    .password("secret")
+                    .type(UserType.USER)
+                    .status(UserStatus.ACTIVE)
+                    .build();
+            user.saveAddress(Address.builder().city("Hanoi").addressType(1).build());
+            user.saveAddress(Address.builder().city("Saigon").addressType(2).build());
+            entityManager.persist(user);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        RecordingStatementInspector.SQL.clear();
+    }
+
+    @Test
+    void pageWithoutAddressesRunsSelectAndCount() {
+        PageResponse<?> page = userService.getAllUsersWithSortBy(1, PAGE_SIZE, "id:asc", null, CountMode.EXACT, false);
+
+        assertEquals(PAGE_SIZE, ((List<?>) page.getItems()).size());
+        assertNull(((UserDetailResponse) first(page)).getAddresses());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void pageWithAddressesAddsOneBatchQuery() {
+        PageResponse<?> page = userService.getAllUsersWithSortBy(1, PAGE_SIZE, "id:asc", null, CountMode.EXACT, true);
+
+        assertEquals(2, ((UserDetailResponse) first(page)).getAddresses().size());
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void sliceWithoutCountRunsSingleSelect() {
+        userService.getAllUsersWithSortByMultipleColumns(2, PAGE_SIZE, null, CountMode.NONE, false, "lastName:desc");
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void saveBatchesTheAddressInserts() {
+        Set<AddressDTO> addresses = Set.of(1, 2, 3, 4, 5).stream()
+                .map(type -> AddressDTO.builder().city("City" + type).addressType(type).build())
+                .collect(Collectors.toSet());
+
+        userService.saveUser(UserRequestDTO.builder()
+                .firstName("New")
+                .lastName("User")
+                .dateOfBirth(new Date())
+                .username("new")
+                .password("secret")
+                .type("user")
+                .addresses(addresses)
+                .build());
+        entityManager.flush();
+
+        assertEquals(6, statistics.getEntityInsertCount());
+        // the user and one batch of addresses (plus a sequence call whenever a block of ids runs out)
+        assertEquals(2, RecordingStatementInspector.SQL.stream().filter(sql -> sql.startsWith("insert")).count());
+    }
+
+    @Test
+    void patchWritesTheChangedColumnOnly() throws Exception {
+        long userId = firstUserId();
+
+        userService.patchUser(userId, objectMapper.readTree("{\"lastName\": \"Changed\"}"), null);
+        entityManager.flush();
+
+        assertEquals(1, statistics.getEntityUpdateCount());
+        assertEquals(0, statistics.getEntityInsertCount() + statistics.getEntityDeleteCount());
+        String update = RecordingStatementInspector.SQL.stream().filter(sql -> sql.startsWith("update")).findFirst().orElseThrow();
+        assertTrue(update.contains("last_name"));
+        assertFalse(update.contains("first_name") || update.contains("email") || update.contains("status"));
+    }
+
+    @Test
+    void patchDiffsAddresses() throws Exception {
+        long userId = firstUserId();
+
+        // Hanoi (type 1) is kept, Saigon (type 2) moves to Hue, type 3 is new
+        userService.patchUser(userId, objectMapper.readTree("{\"addresses\": [{\"city\": \"Hanoi\", \"addressType\": 1}," +
+                " {\"city\": \"Hue\", \"addressType\": 2}, {\"city\": \"Danang\", \"addressType\": 3}]}"), null);
+        entityManager.flush();
+
+        // the moved address and the user's version
+        assertEquals(2, statistics.getEntityUpdateCount());
+        assertEquals(1, statistics.getEntityInsertCount());
+        assertEquals(0, statistics.getEntityDeleteCount());
+
+        userService.patchUser(userId, objectMapper.readTree("{\"addresses\": [{\"city\": \"Hanoi\", \"addressType\": 1}]}"), null);
+        entityManager.flush();
+
+        assertEquals(2, statistics.getEntityDeleteCount());
+    }
+
+    @Test
+    void patchIsValidatedLikeAPut() throws Exception {
+        long userId = firstUserId();
+
+        assertThrows(ConstraintViolationException.class,
+                () -> userService.patchUser(userId, objectMapper.readTree("{\"firstName\": null}"), null));
+    }
+
+    @Test
+    void writesAreConditionalOnTheExpectedVersion() throws Exception {
+        long userId = firstUserId();
+        long version = userService.getUser(userId).getVersion();
+
+        userService.patchUser(userId, objectMapper.readTree("{\"lastName\": \"Changed\"}"), version);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThrows(PreconditionFailedException.class,
+                () -> userService.patchUser(userId, objectMapper.readTree("{\"lastName\": \"Lost\"}"), version));
+        assertThrows(PreconditionFailedException.class,
+                () -> userService.changeStatus(userId, UserStatus.INACTIVE, version));
+
+        userService.changeStatus(userId, UserStatus.INACTIVE, version + 1);
+        entityManager.clear();
+        assertEquals(version + 2, userService.getUser(userId).getVersion());
+    }
+
+    @Test
+    void rolledBackWritesLeaveTheSearchIndexAlone() throws Exception {
+        long userId = firstUserId();
+
+        userService.patchUser(userId, objectMapper.readTree("{\"lastName\": \"Changed\"}"), null);
+        userService.deleteUser(userId);
+        TestTransaction.end();
+
+        verify(searchIndex, never()).replace(any(), any());
+        verify(searchIndex, never()).remove(any());
+    }
+
+    @Test
+    void writesAppendTheirChangeToTheOutbox() throws Exception {
+        long userId = firstUserId();
+
+        userService.patchUser(userId, objectMapper.readTree("{\"lastName\": \"Changed\"}"), null);
+        // changes nothing, so appends nothing
+        userService.patchUser(userId, objectMapper.readTree("{\"lastName\": \"Changed\"}"), null);
+        userService.changeStatus(userId, UserStatus.INACTIVE, null);
+        entityManager.clear();
+        userService.deleteUser(userId);
+        long newUserId = userService.saveUser(UserRequestDTO.builder()
+                .firstName("New")
+                .lastName("User")
+                .username("new")
+                .password("secret")
+                .type("user")
+                .addresses(Set.of())
+                .build());
+
+        List<String> changes = jdbcTemplate.query("select user_id, type, version from tbl_user_change order by id",
+                (rs, rowNum) -> rs.getLong("user_id") + " " + rs.getString("type") + " " + rs.getLong("version"));
+        assertEquals(List.of(userId + " UPDATED 1", userId + " STATUS_CHANGED 2", userId + " DELETED 2", newUserId + " CREATED 0"), changes);
+    }
+
+    private long firstUserId() {
+        return entityManager.createQuery("select min(u.id) from User u", Long.class).getSingleResult();
+    }
+
+    private static Object first(PageResponse<?> page) {
+        return ((List<?>) page.getItems()).get(0);
+    }
+}
@@ -0,0 +1,84 @@
+package com.khoinguyen.core.service.impl;
+
+import com.khoinguyen.core.configuration.CacheConfig;
+import com.khoinguyen.core.exception.QueueFullException;
+import com.khoinguyen.core.repository.UserJdbcRepository;
+import com.khoinguyen.core.util.UserStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class UserStatusServiceImplTest {
+
+    private final UserJdbcRepository userJdbcRepository = mock(UserJdbcRepository.class);
+
+    private UserStatusServiceImpl queue;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        queue.destroy();
+    }
+
+    @Test
+    void coalescesChangesPerUserAndAcknowledgesAfterTheWrite() throws Exception {
+        queue = queue(10);
+
+        CompletableFuture<Void> first = queue.changeStatus(List.of(1L, 2L), UserStatus.INACTIVE);
+        CompletableFuture<Void> second = queue.changeStatus(List.of(2L, 3L), UserStatus.ACTIVE);
+        assertFalse(first.isDone());
+
+        queue.flush();
+
+        first.get();
+        second.get();
+        verify(userJdbcRepository).updateStatus(List.of(1L), UserStatus.INACTIVE);
+        verify(userJdbcRepository).updateStatus(List.of(2L, 3L), UserStatus.ACTIVE);
+        verifyNoMoreInteractions(userJdbcRepository);
+    }
+
+    @Test
+    void rejectsChangesWhenFull() {
+        queue = queue(2);
+
+        queue.changeStatus(Set.of(1L, 2L), UserStatus.INACTIVE);
+
+        assertThrows(QueueFullException.class, () -> queue.changeStatus(Set.of(3L), UserStatus.INACTIVE));
+        // users already queued do not take more room
+        queue.changeStatus(Set.of(2L), UserStatus.NONE);
+    }
+
+    @Test
+    void failsTheAcknowledgementWhenTheWriteFails() {
+        queue = queue(10);
+        when(userJdbcRepository.updateStatus(anyList(), any())).thenThrow(new QueryTimeoutException("timeout"));
+
+        CompletableFuture<Void> change = queue.changeStatus(Set.of(1L), UserStatus.INACTIVE);
+        queue.flush();
+
+        ExecutionException e = assertThrows(ExecutionException.class, change::get);
+        assertTrue(e.getCause() instanceof QueryTimeoutException);
+    }
+
+    private UserStatusServiceImpl queue(int capacity) {
+        return new UserStatusServiceImpl(userJdbcRepository, new CaffeineCacheManager(CacheConfig.USERS), new SimpleMeterRegistry(),
+                1000, capacity, Duration.ofHours(1), Duration.ofMillis(10));
+    }
+}
@@ -0,0 +1,46 @@
+-- H2 stand-in for the PostgreSQL schema, used by @DataJpaTest slices (no NAMED_ENUM DDL on H2)
+-- named like the sequences behind the Postgres identity columns, with INCREMENT BY app.id.allocation-size
+CREATE SEQUENCE tbl_user_id_seq INCREMENT BY 50;
+CREATE SEQUENCE tbl_address_id_seq INCREMENT BY 50;
+
+CREATE TABLE tbl_user (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    first_name VARCHAR(255),
+    last_name VARCHAR(255),
+    date_of_birth DATE,
+    gender ENUM('MALE', 'FEMALE', 'OTHER'),
+    phone VARCHAR(15),
+    email VARCHAR(255),
+    username VARCHAR(255),
+    password VARCHAR(255),
+    type ENUM('OWNER', 'ADMIN', 'USER'),
+    status ENUM('ACTIVE', 'INACTIVE', 'NONE'),
+    created_at TIMESTAMP,
+    updated_at TIMESTAMP,
+    version BIGINT DEFAULT 0 NOT NULL
+);
+
+CREATE TABLE tbl_address (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    apartment_number VARCHAR(255),
+    floor VARCHAR(255),
+    building VARCHAR(255),
+    street_number VARCHAR(255),
+    street VARCHAR(255),
+    city VARCHAR(255),
+    country VARCHAR(255),
+    address_type INTEGER,
+    user_id BIGINT REFERENCES tbl_user (id),
+    created_at TIMESTAMP,
+    updated_at TIMESTAMP,
+    version BIGINT DEFAULT 0 NOT NULL
+);
+
+CREATE TABLE tbl_user_change (
+    id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    version BIGINT,
+    type VARCHAR(32) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    position BIGINT UNIQUE
+);